@@ -0,0 +1,97 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package gda.data.nexus.benchmark;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.january.dataset.Dataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gda.data.nexus.extractor.NexusGroupData;
+
+/**
+ * Converting NexusGroupData held in memory to datasets, encoded strings and text
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NexusGroupDataBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int size;
+
+	private NexusGroupData numbers;
+	private NexusGroupData strings;
+
+	@Setup
+	public void setUp() {
+		double[] d = new double[size];
+		for (int i = 0; i < size; i++) {
+			d[i] = i * 0.25;
+		}
+		numbers = new NexusGroupData(d);
+
+		String[] s = new String[size / 10];
+		for (int i = 0; i < s.length; i++) {
+			s[i] = "positioner" + i + " °C";
+		}
+		strings = new NexusGroupData(32, s);
+	}
+
+	@Benchmark
+	public Dataset toDataset() {
+		return numbers.toDataset();
+	}
+
+	@Benchmark
+	public Dataset stringsToDataset() {
+		return strings.toDataset();
+	}
+
+	/**
+	 * Encode strings as UTF-8 bytes
+	 */
+	@Benchmark
+	public Serializable getBufferEncoded() {
+		return strings.getBuffer(true);
+	}
+
+	@Benchmark
+	public String dataToTxt() {
+		return numbers.dataToTxt(false, true, false);
+	}
+
+	@Benchmark
+	public String stringsToTxt() {
+		return strings.dataToTxt(false, true, false);
+	}
+}
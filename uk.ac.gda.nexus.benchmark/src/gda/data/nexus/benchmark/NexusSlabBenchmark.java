@@ -0,0 +1,92 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package gda.data.nexus.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import gda.data.nexus.extractor.NexusExtractor;
+import gda.data.nexus.extractor.NexusGroupData;
+import gda.data.nexus.extractor.NexusSlabIterator;
+import gda.data.nexus.tree.INexusTree;
+import gda.data.nexus.tree.NexusTreeBuilder;
+import gda.data.nexus.tree.NexusTreeNodeSelection;
+
+/**
+ * Reading frames of the detector data of a synthetic file, one slab per call and by iterating over all the frames
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NexusSlabBenchmark {
+
+	@Param({ "64", "512" })
+	public int frameSize;
+
+	private final int frames = 100;
+	private INexusTree detectorData;
+	private int frame;
+
+	@Setup
+	public void setUp() throws Exception {
+		String file = SyntheticNexusFile.create(frames, frameSize, frameSize, 1);
+		INexusTree tree = NexusTreeBuilder.getNexusTree(file, NexusTreeNodeSelection.createTreeForAllMetaData());
+		detectorData = tree.getChildNode("entry1", NexusExtractor.NXEntryClassName)
+				.getChildNode("instrument", NexusExtractor.NXInstrumentClassName)
+				.getChildNode("detector", NexusExtractor.NXDetectorClassName)
+				.getChildNode("data", NexusExtractor.SDSClassName);
+	}
+
+	/**
+	 * Read the frames in turn, one per call
+	 */
+	@Benchmark
+	public NexusGroupData getNexusGroupDataSlab() throws Exception {
+		frame = (frame + 1) % frames;
+		return NexusExtractor.getNexusGroupDataSlab(detectorData, new int[] { frame, 0, 0 },
+				new int[] { 1, frameSize, frameSize });
+	}
+
+	/**
+	 * Read all the frames
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void getNexusGroupDataSlabs(Blackhole blackhole) throws Exception {
+		try (NexusSlabIterator it = NexusExtractor.getNexusGroupDataSlabs(detectorData, new int[] { 1, 0, 0 }, null)) {
+			while (it.hasNext()) {
+				blackhole.consume(it.next());
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+package gda.data.nexus.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gda.data.nexus.tree.INexusTree;
+import gda.data.nexus.tree.NexusTreeBuilder;
+import gda.data.nexus.tree.NexusTreeNodeSelection;
+
+/**
+ * Building trees from a synthetic file with each of the selections made by NexusTreeNodeSelection, and writing the
+ * trees as XML
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NexusTreeBuilderBenchmark {
+
+	/**
+	 * The selections made by NexusTreeNodeSelection
+	 */
+	public enum Preset {
+		ALL_NXENTRIES, ALL_NXDATA, DATASET_NAMES, ALL_DATA, ALL_METADATA;
+
+		NexusTreeNodeSelection create() throws Exception {
+			switch (this) {
+			case ALL_NXENTRIES:
+				return NexusTreeNodeSelection.createTreeForAllNXEntries();
+			case ALL_NXDATA:
+				return NexusTreeNodeSelection.createTreeForAllNXData();
+			case DATASET_NAMES:
+				return NexusTreeNodeSelection.createTreeForDataSetNames(Arrays.asList("data.positioner0", "positioner1"), true);
+			case ALL_DATA:
+				return NexusTreeNodeSelection.createTreeForAllData();
+			default:
+				return NexusTreeNodeSelection.createTreeForAllMetaData();
+			}
+		}
+	}
+
+	@Param
+	public Preset preset;
+
+	@Param({ "10", "100" })
+	public int positioners;
+
+	/**
+	 * Number of NXentry groups, which getNexusTreeParallel reads in parallel
+	 */
+	@Param({ "1", "4" })
+	public int entries;
+
+	private String file;
+	private NexusTreeNodeSelection selection;
+	private INexusTree tree;
+
+	@Setup
+	public void setUp() throws Exception {
+		file = SyntheticNexusFile.create(100, 64, 64, positioners, entries);
+		selection = preset.create();
+		tree = NexusTreeBuilder.getNexusTree(file, selection);
+	}
+
+	@Benchmark
+	public INexusTree getNexusTree() throws Exception {
+		return NexusTreeBuilder.getNexusTree(file, selection);
+	}
+
+	@Benchmark
+	public INexusTree getNexusTreeParallel() throws Exception {
+		return NexusTreeBuilder.getNexusTreeParallel(file, selection, null);
+	}
+
+	@Benchmark
+	public String toXML() {
+		return tree.toXML(false, false);
+	}
+}
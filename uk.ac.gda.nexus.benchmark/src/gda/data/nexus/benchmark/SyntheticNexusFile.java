@@ -0,0 +1,139 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.dawnsci.analysis.api.tree.DataNode;
+import org.eclipse.dawnsci.analysis.api.tree.GroupNode;
+import org.eclipse.dawnsci.hdf5.nexus.NexusFileHDF5;
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.dawnsci.nexus.NexusFile;
+import org.eclipse.dawnsci.nexus.NexusUtils;
+import org.eclipse.january.dataset.Dataset;
+import org.eclipse.january.dataset.DatasetFactory;
+
+import gda.data.nexus.extractor.NexusExtractor;
+
+/**
+ * Writes a scan file laid out as GDA writes them, so that benchmarks do not depend on files outside the build:
+ *
+ * <pre>
+ * entry1:NXentry
+ *     title, scan_command
+ *     instrument:NXinstrument
+ *         detector:NXdetector
+ *             data [frames, height, width]
+ *             description
+ *         positioner0:NXpositioner ... value [frames], name
+ *     sample:NXsample
+ *         name, description
+ *     data:NXdata
+ *         data [frames, height, width], positioner0 ... [frames]
+ * entry2:NXentry ...
+ * </pre>
+ */
+final class SyntheticNexusFile {
+
+	private SyntheticNexusFile() {
+	}
+
+	/**
+	 * @param frames
+	 *            number of detector frames
+	 * @param height
+	 *            of each frame
+	 * @param width
+	 *            of each frame
+	 * @param positioners
+	 *            number of NXpositioner groups
+	 * @return file with one NXentry in a new temporary directory which is deleted when the JVM exits
+	 * @throws IOException
+	 * @throws NexusException
+	 */
+	static String create(int frames, int height, int width, int positioners) throws IOException, NexusException {
+		return create(frames, height, width, positioners, 1);
+	}
+
+	/**
+	 * @param frames
+	 *            number of detector frames
+	 * @param height
+	 *            of each frame
+	 * @param width
+	 *            of each frame
+	 * @param positioners
+	 *            number of NXpositioner groups
+	 * @param entries
+	 *            number of NXentry groups, each laid out the same
+	 * @return file in a new temporary directory which is deleted when the JVM exits
+	 * @throws IOException
+	 * @throws NexusException
+	 */
+	static String create(int frames, int height, int width, int positioners, int entries)
+			throws IOException, NexusException {
+		Path dir = Files.createTempDirectory("nexus-benchmark");
+		File file = dir.resolve("synthetic.nxs").toFile();
+		dir.toFile().deleteOnExit();
+		file.deleteOnExit();
+
+		Dataset detector = DatasetFactory.createRange(frames * height * width).reshape(frames, height, width);
+		detector.setName("data");
+		try (NexusFile nexus = NexusFileHDF5.createNexusFile(file.getAbsolutePath())) {
+			for (int e = 1; e <= entries; e++) {
+				writeEntry(nexus, "entry" + e, detector, frames, positioners);
+			}
+		}
+		return file.getAbsolutePath();
+	}
+
+	private static void writeEntry(NexusFile nexus, String entryName, Dataset detector, int frames, int positioners)
+			throws NexusException {
+		GroupNode entry = nexus.getGroup(NexusUtils.createAugmentPath(entryName, NexusExtractor.NXEntryClassName), true);
+		NexusUtils.write(nexus, entry, "title", "Synthetic scan for benchmarks");
+		NexusUtils.write(nexus, entry, "scan_command", "scan positioner0 0 " + (frames - 1) + " 1 detector");
+
+		GroupNode instrument = nexus.getGroup(entry, "instrument", NexusExtractor.NXInstrumentClassName, true);
+		GroupNode detectorGroup = nexus.getGroup(instrument, "detector", NexusExtractor.NXDetectorClassName, true);
+		DataNode detectorData = nexus.createData(detectorGroup, detector);
+		NexusUtils.writeStringAttribute(nexus, detectorData, "units", "counts");
+		NexusUtils.write(nexus, detectorGroup, "description", "Area detector");
+
+		GroupNode sample = nexus.getGroup(entry, "sample", "NXsample", true);
+		NexusUtils.write(nexus, sample, "name", "Silicon");
+		NexusUtils.write(nexus, sample, "description", "Powder in capillary");
+
+		GroupNode data = nexus.getGroup(entry, "data", NexusExtractor.NXDataClassName, true);
+		nexus.createData(data, detector);
+		for (int p = 0; p < positioners; p++) {
+			double[] values = new double[frames];
+			for (int i = 0; i < frames; i++) {
+				values[i] = p + i * 0.5;
+			}
+			String name = "positioner" + p;
+			GroupNode positioner = nexus.getGroup(instrument, name, NexusExtractor.NXPositionerClassName, true);
+			NexusUtils.write(nexus, positioner, "value", values);
+			NexusUtils.write(nexus, positioner, "name", name);
+			NexusUtils.write(nexus, data, name, values);
+		}
+	}
+}
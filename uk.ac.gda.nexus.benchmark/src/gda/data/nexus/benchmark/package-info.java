@@ -0,0 +1,27 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+/**
+ * JMH benchmarks of reading NeXus files into trees and of converting the data read. The files read are written by
+ * the benchmarks so no test data is needed.
+ * <p>
+ * Run all the benchmarks with <code>mvn -Pbenchmark verify</code>, which writes the results as JSON to
+ * <code>target/jmh-result.json</code> so results can be compared between versions. Set
+ * <code>-Dbenchmark.include=</code> to a regular expression to run only some of the benchmarks and
+ * <code>-Dbenchmark.result=</code> to write the results elsewhere.
+ */
+package gda.data.nexus.benchmark;
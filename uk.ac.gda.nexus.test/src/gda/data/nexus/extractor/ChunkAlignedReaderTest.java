@@ -0,0 +1,157 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+
+import org.eclipse.dawnsci.analysis.api.tree.DataNode;
+import org.eclipse.dawnsci.nexus.NexusFile;
+import org.eclipse.january.dataset.CompoundDoubleDataset;
+import org.eclipse.january.dataset.Dataset;
+import org.eclipse.january.dataset.DatasetFactory;
+import org.eclipse.january.dataset.IntegerDataset;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChunkAlignedReaderTest {
+
+	private static final String IMAGE = "entry1:NXentry/data:NXdata/image:SDS";
+	private static final int[] SHAPE = { 10, 100, 100 };
+	private static final int[] CHUNKS = { 1, 25, 100 };
+
+	private final Dataset image = DatasetFactory.createRange(10 * 100 * 100).reshape(SHAPE);
+	private File file;
+	private URL source;
+	private int reads;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("chunkAligned", ".nxs");
+		source = file.toURI().toURL();
+		reads = 0;
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private NexusGroupData read(int[] start, int[] stop) {
+		reads++;
+		return NexusGroupData.createFromDataset(image.getSlice(start, stop, null));
+	}
+
+	private NexusGroupData read(NexusGroupDataCache cache, int[] chunks, int[] start, int[] stop) throws Exception {
+		return ChunkAlignedReader.read(cache, source, IMAGE, SHAPE, chunks, Double.BYTES, start, stop, this::read);
+	}
+
+	@Test
+	public void testAlign() {
+		int[][] aligned = ChunkAlignedReader.align(new int[] { 3, 30, 0 }, new int[] { 4, 31, 100 }, SHAPE, CHUNKS);
+		assertArrayEquals(new int[] { 3, 25, 0 }, aligned[0]);
+		assertArrayEquals(new int[] { 4, 50, 100 }, aligned[1]);
+		// cut short at the end of the dataset
+		aligned = ChunkAlignedReader.align(new int[] { 0, 0, 0 }, new int[] { 1, 1, 1 }, SHAPE, new int[] { 4, 64, 64 });
+		assertArrayEquals(new int[] { 4, 64, 64 }, aligned[1]);
+		aligned = ChunkAlignedReader.align(new int[] { 8, 90, 90 }, new int[] { 10, 100, 100 }, SHAPE, new int[] { 4, 64, 64 });
+		assertArrayEquals(new int[] { 8, 64, 64 }, aligned[0]);
+		assertArrayEquals(SHAPE, aligned[1]);
+		assertNull(ChunkAlignedReader.align(new int[] { 0, 0, 0 }, SHAPE, SHAPE, null));
+	}
+
+	@Test
+	public void testRowsReadOncePerChunk() throws Exception {
+		NexusGroupDataCache cache = new NexusGroupDataCache(1000000);
+		for (int row = 0; row < 50; row++) {
+			int[] start = { 2, row, 0 };
+			int[] stop = { 3, row + 1, 100 };
+			NexusGroupData slab = read(cache, CHUNKS, start, stop);
+			assertArrayEquals(new int[] { 1, 1, 100 }, slab.getDimensions());
+			assertEquals(image.getSlice(start, stop, null), slab.toDataset());
+		}
+		assertEquals(2, reads);
+	}
+
+	@Test
+	public void testReadsDirectlyWhenNotChunkedOrTooLarge() throws Exception {
+		int[] start = { 2, 0, 0 };
+		int[] stop = { 3, 1, 100 };
+		NexusGroupDataCache cache = new NexusGroupDataCache(1000000);
+		read(cache, null, start, stop);
+		read(cache, null, start, stop);
+		assertEquals(2, reads);
+		assertEquals(0, cache.size());
+
+		NexusGroupDataCache small = new NexusGroupDataCache(1000);
+		read(small, CHUNKS, start, stop);
+		assertEquals(3, reads);
+		assertEquals(0, small.size());
+	}
+
+	@Test
+	public void testItemBytes() {
+		assertEquals(Integer.BYTES, SimpleExtractor.getItemBytes(DatasetFactory.zeros(IntegerDataset.class, 2)));
+		assertEquals(3 * Double.BYTES, SimpleExtractor.getItemBytes(DatasetFactory.zeros(3, CompoundDoubleDataset.class, 2)));
+	}
+
+	/**
+	 * File with an integer dataset whose chunks are {@code chunks}
+	 */
+	private static NexusFile file(Dataset data, int[] chunks) {
+		DataNode node = (DataNode) Proxy.newProxyInstance(DataNode.class.getClassLoader(), new Class<?>[] { DataNode.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getDataset":
+						return data;
+					case "getChunkShape":
+						return chunks;
+					case "isString":
+						return false;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		return (NexusFile) Proxy.newProxyInstance(NexusFile.class.getClassLoader(), new Class<?>[] { NexusFile.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("getData") && args.length == 1) {
+						return node;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	@Test
+	public void testSimpleExtractorSizesItemsByType() throws Exception {
+		Dataset data = DatasetFactory.createRange(IntegerDataset.class, 200).reshape(4, 50);
+		// a super-slab of two rows of ints fits with its overhead, but would not if each item took 8 bytes
+		NexusGroupDataCache cache = new NexusGroupDataCache(600);
+		String path = "entry1/NXentry/data/NXdata/image/SDS/";
+		SimpleExtractor extractor = new SimpleExtractor(source, path, new int[] { 1, 0 }, new int[] { 1, 50 }, false);
+		NexusGroupData row = extractor.getData(file(data, new int[] { 2, 50 }), path, cache);
+		assertEquals(1, cache.size());
+		assertEquals(data.getSlice(new int[] { 1, 0 }, new int[] { 2, 50 }, null), row.toDataset());
+	}
+}
@@ -0,0 +1,206 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.dawnsci.analysis.api.tree.Attribute;
+import org.eclipse.dawnsci.analysis.api.tree.DataNode;
+import org.eclipse.dawnsci.analysis.api.tree.GroupNode;
+import org.eclipse.dawnsci.analysis.api.tree.Node;
+import org.eclipse.dawnsci.analysis.api.tree.NodeLink;
+import org.eclipse.dawnsci.nexus.NexusConstants;
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.dawnsci.nexus.NexusFile;
+import org.eclipse.january.dataset.Dataset;
+import org.eclipse.january.dataset.DatasetFactory;
+import org.eclipse.january.dataset.IntegerDataset;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sharing of data between links, using a fake file laid out as a scan whose detectors write their own files
+ */
+public class NexusExtractorLinksTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("links", ".nxs");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testExternalDataIsNotShared() throws Exception {
+		// two detector files of the same layout, whose datasets have the same address
+		Dataset values2 = DatasetFactory.createRange(IntegerDataset.class, 10, 14, 1);
+		DataNode image1 = dataNode(96, DatasetFactory.createRange(IntegerDataset.class, 4));
+		DataNode image2 = dataNode(96, values2);
+		DataNode x = dataNode(200, DatasetFactory.createRange(IntegerDataset.class, 3));
+		GroupNode plot = group(2, "NXdata", Map.of("x", x), Set.of());
+		GroupNode entry = group(3, NexusExtractor.NXEntryClassName, Map.of("detector1", group(1, "NXdetector",
+				Map.of("data", image1), Set.of()), "detector2", group(1, "NXdetector", Map.of("data", image2), Set.of()),
+				"x", x, "plot", plot), Set.of("detector1", "detector2"));
+		GroupNode root = group(4, "", Map.of("entry1", entry), Set.of());
+
+		Map<String, NexusGroupData> data = readAllData(fakeFile(root));
+		assertEquals(4, data.size());
+		assertSame(data.get("entry1/x"), data.get("entry1/plot/x"));
+		NexusGroupData data1 = data.get("entry1/detector1/data");
+		NexusGroupData data2 = data.get("entry1/detector2/data");
+		assertNotSame(data1, data2);
+		assertNotEquals(data1, data2);
+		assertEquals(values2, data2.toDataset());
+	}
+
+	/**
+	 * @return data of every SDS in the file by path
+	 */
+	private Map<String, NexusGroupData> readAllData(NexusFile nexusFile) throws Exception {
+		Map<String, NexusGroupData> data = new LinkedHashMap<>();
+		Deque<String> path = new ArrayDeque<>();
+		new NexusExtractor(file.getPath(), new NexusFileCache(0, 0, p -> nexusFile)).runLoop(new INexusTreeProcessor() {
+			@Override
+			public RESPONSE beginElement(String name, String nxClass, INexusDataGetter nexusDataGetter)
+					throws NexusException, NexusExtractorException {
+				if (nxClass.equals(NexusExtractor.SDSClassName)) {
+					data.put(String.join("/", path) + "/" + name,
+							nexusDataGetter.getDataForCurrentProcessedGroup(name, nxClass, true));
+					return RESPONSE.SKIP_OVER;
+				}
+				if (!name.isEmpty()) {
+					path.addLast(name);
+				}
+				return RESPONSE.GO_INTO;
+			}
+
+			@Override
+			public void endElement() {
+				path.pollLast();
+			}
+		}, false);
+		return data;
+	}
+
+	private static NexusFile fakeFile(GroupNode root) {
+		return (NexusFile) Proxy.newProxyInstance(NexusFile.class.getClassLoader(), new Class<?>[] { NexusFile.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "setDebug":
+					case "close":
+						return null;
+					case "getGroup":
+						return args.length == 2 ? root : ((GroupNode) args[0]).getNodeLink((String) args[1]).getDestination();
+					case "getData":
+						return ((GroupNode) args[0]).getNodeLink((String) args[1]).getDestination();
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static DataNode dataNode(long id, Dataset data) {
+		return (DataNode) Proxy.newProxyInstance(DataNode.class.getClassLoader(), new Class<?>[] { DataNode.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getID":
+						return id;
+					case "getDataset":
+						return data;
+					case "isString":
+						return false;
+					case "getAttribute":
+						return null;
+					case "getAttributeIterator":
+						return Collections.emptyIterator();
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	/**
+	 * @param external
+	 *            names of children reached through external links
+	 */
+	private static GroupNode group(long id, String nxClass, Map<String, Node> children, Set<String> external) {
+		Attribute nxClassAttribute = (Attribute) Proxy.newProxyInstance(Attribute.class.getClassLoader(),
+				new Class<?>[] { Attribute.class }, (proxy, method, args) -> {
+					if (method.getName().equals("getFirstElement")) {
+						return nxClass;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		Map<String, Node> sorted = new TreeMap<>(children);
+		return (GroupNode) Proxy.newProxyInstance(GroupNode.class.getClassLoader(), new Class<?>[] { GroupNode.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getID":
+						return id;
+					case "getNodeNameIterator":
+						return sorted.keySet().iterator();
+					case "getNodeLink":
+						return link(children.get(args[0]), external.contains(args[0]));
+					case "getAttribute":
+						return NexusConstants.NXCLASS.equals(args[0]) ? nxClassAttribute : null;
+					case "getAttributeIterator":
+						return Collections.emptyIterator();
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static NodeLink link(Node destination, boolean external) {
+		return (NodeLink) Proxy.newProxyInstance(NodeLink.class.getClassLoader(), new Class<?>[] { NodeLink.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getDestination":
+						return destination;
+					case "isDestinationData":
+						return destination instanceof DataNode;
+					case "isDestinationGroup":
+						return destination instanceof GroupNode;
+					case "isDestinationSymbolic":
+						return external;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
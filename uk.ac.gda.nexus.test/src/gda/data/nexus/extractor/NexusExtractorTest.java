@@ -23,6 +23,12 @@ import static org.junit.Assume.assumeNotNull;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.dawnsci.nexus.NexusException;
 import org.junit.After;
@@ -116,4 +122,63 @@ public class NexusExtractorTest {
 		Assert.assertEquals( (Double)0.2, (Double)((double [])data.getBuffer())[0]);
 		Assert.assertEquals( (Double)0.3, (Double)((double [])data.getBuffer())[1]);
 	}
+
+	/**
+	 * A dataset reached through more than one link in 327.nxs is read once and its data shared, unless that is turned
+	 * off by {@value NexusExtractor#SHARE_LINKED_DATA_PROPERTY}
+	 */
+	@Test
+	public void testLinkedDataIsShared() throws Exception {
+		String fileName = TestFileFolder + "327.nxs";
+		Map<String, NexusGroupData> shared = readAllData(fileName);
+		List<String> links = null;
+		for (Map.Entry<String, NexusGroupData> e : shared.entrySet()) {
+			for (Map.Entry<String, NexusGroupData> f : shared.entrySet()) {
+				if (links == null && e.getValue() == f.getValue() && !e.getKey().equals(f.getKey())) {
+					links = List.of(e.getKey(), f.getKey());
+				}
+			}
+		}
+		Assert.assertNotNull("No dataset is linked", links);
+		Assert.assertSame(shared.get(links.get(0)), shared.get(links.get(1)));
+
+		System.setProperty(NexusExtractor.SHARE_LINKED_DATA_PROPERTY, "false");
+		try {
+			Map<String, NexusGroupData> unshared = readAllData(fileName);
+			Assert.assertNotSame(unshared.get(links.get(0)), unshared.get(links.get(1)));
+			Assert.assertEquals(unshared.get(links.get(0)), unshared.get(links.get(1)));
+		} finally {
+			System.clearProperty(NexusExtractor.SHARE_LINKED_DATA_PROPERTY);
+		}
+	}
+
+	/**
+	 * @return data of every SDS in the file by path
+	 */
+	private static Map<String, NexusGroupData> readAllData(String fileName) throws Exception {
+		Map<String, NexusGroupData> data = new LinkedHashMap<>();
+		Deque<String> path = new ArrayDeque<>();
+		new NexusExtractor(fileName).runLoop(new INexusTreeProcessor() {
+			@Override
+			public RESPONSE beginElement(String name, String nxClass, INexusDataGetter nexusDataGetter)
+					throws NexusException, NexusExtractorException {
+				if (nxClass.equals(NexusExtractor.SDSClassName)) {
+					data.put(String.join("/", new ArrayList<>(path)) + "/" + name,
+							nexusDataGetter.getDataForCurrentProcessedGroup(name, nxClass, true));
+					return RESPONSE.SKIP_OVER;
+				}
+				if (nxClass.equals(NexusExtractor.AttrClassName)) {
+					return RESPONSE.SKIP_OVER;
+				}
+				path.addLast(name);
+				return RESPONSE.GO_INTO;
+			}
+
+			@Override
+			public void endElement() {
+				path.removeLast();
+			}
+		}, false);
+		return data;
+	}
 }
@@ -0,0 +1,195 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.dawnsci.nexus.NexusFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NexusFileCacheTest {
+
+	private Map<NexusFile, Integer> closed;
+	private int opened;
+	private File fileA;
+	private File fileB;
+
+	@Before
+	public void setUp() throws Exception {
+		closed = new ConcurrentHashMap<>();
+		opened = 0;
+		fileA = File.createTempFile("cacheA", ".nxs");
+		fileB = File.createTempFile("cacheB", ".nxs");
+	}
+
+	@After
+	public void tearDown() {
+		fileA.delete();
+		fileB.delete();
+	}
+
+	private NexusFile open(@SuppressWarnings("unused") String path) {
+		opened++;
+		NexusFile[] self = new NexusFile[1];
+		self[0] = (NexusFile) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { NexusFile.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "close":
+						closed.merge(self[0], 1, Integer::sum);
+						return null;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+					}
+				});
+		return self[0];
+	}
+
+	@Test
+	public void testHandleIsReused() throws Exception {
+		NexusFileCache cache = new NexusFileCache(2, 60000, this::open);
+		NexusFile first;
+		try (NexusFileCache.Handle h = cache.acquire(fileA.getPath())) {
+			first = h.getFile();
+		}
+		try (NexusFileCache.Handle h = cache.acquire(fileA.getPath())) {
+			assertSame(first, h.getFile());
+		}
+		assertEquals(1, opened);
+		assertEquals(0, closed.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws Exception {
+		NexusFileCache cache = new NexusFileCache(1, 60000, this::open);
+		NexusFile first;
+		try (NexusFileCache.Handle h = cache.acquire(fileA.getPath())) {
+			first = h.getFile();
+		}
+		try (NexusFileCache.Handle h = cache.acquire(fileB.getPath())) {
+			assertEquals(Integer.valueOf(1), closed.get(first));
+		}
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testHandleInUseIsNotClosed() throws Exception {
+		NexusFileCache cache = new NexusFileCache(1, 60000, this::open);
+		try (NexusFileCache.Handle a = cache.acquire(fileA.getPath());
+				NexusFileCache.Handle b = cache.acquire(fileB.getPath())) {
+			assertEquals(0, closed.size());
+			assertEquals(2, cache.size());
+		}
+	}
+
+	@Test
+	public void testModifiedFileIsReopened() throws Exception {
+		NexusFileCache cache = new NexusFileCache(2, 60000, this::open);
+		try (NexusFileCache.Handle h = cache.acquire(fileA.getPath())) {
+			NexusFile first = h.getFile();
+			Files.setLastModifiedTime(fileA.toPath(), FileTime.fromMillis(fileA.lastModified() - 10000));
+			try (NexusFileCache.Handle h2 = cache.acquire(fileA.getPath())) {
+				assertNotSame(first, h2.getFile());
+				assertEquals("stale handle in use must stay open", 0, closed.size());
+			}
+			h.close();
+			assertEquals(Integer.valueOf(1), closed.get(first));
+		}
+		assertEquals(2, opened);
+	}
+
+	@Test
+	public void testIdleHandleIsClosed() throws Exception {
+		NexusFileCache cache = new NexusFileCache(2, 1, this::open);
+		NexusFile first;
+		try (NexusFileCache.Handle h = cache.acquire(fileA.getPath())) {
+			first = h.getFile();
+		}
+		Thread.sleep(10);
+		cache.expireIdle();
+		assertEquals(0, cache.size());
+		assertEquals(Integer.valueOf(1), closed.get(first));
+	}
+
+	@Test
+	public void testCachingDisabled() throws Exception {
+		NexusFileCache cache = new NexusFileCache(0, 60000, this::open);
+		try (NexusFileCache.Handle h = cache.acquire(fileA.getPath())) {
+			assertEquals(0, cache.size());
+		}
+		assertEquals(1, closed.size());
+	}
+
+	@Test
+	public void testLockContentionIsRecorded() throws Exception {
+		NexusFileCache cache = new NexusFileCache(2, 60000, this::open);
+		CountDownLatch locked = new CountDownLatch(1);
+		try (NexusFileCache.Handle h = cache.acquire(fileA.getPath())) {
+			h.lock();
+			Thread other = new Thread(() -> {
+				try (NexusFileCache.Handle h2 = cache.acquire(fileA.getPath())) {
+					locked.countDown();
+					h2.lock();
+					h2.unlock();
+				} catch (NexusException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			other.start();
+			locked.await();
+			Thread.sleep(50);
+			h.unlock();
+			other.join();
+		}
+		assertEquals(2, cache.getLockCount());
+		assertEquals(1, cache.getContendedLockCount());
+		assertTrue(cache.getLockWaitTime(TimeUnit.MILLISECONDS) > 0);
+	}
+
+	@Test
+	public void testDifferentFilesDoNotContend() throws Exception {
+		NexusFileCache cache = new NexusFileCache(2, 60000, this::open);
+		try (NexusFileCache.Handle a = cache.acquire(fileA.getPath());
+				NexusFileCache.Handle b = cache.acquire(fileB.getPath())) {
+			a.lock();
+			b.lock();
+			b.unlock();
+			a.unlock();
+		}
+		assertEquals(0, cache.getContendedLockCount());
+	}
+}
@@ -0,0 +1,127 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NexusGroupDataCacheTest {
+
+	private static final String AXIS = "entry1:NXentry/data:NXdata/x:SDS";
+	private static final String IMAGE = "entry1:NXentry/data:NXdata/image:SDS";
+
+	private File file;
+	private URL source;
+	private int loads;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("dataCache", ".nxs");
+		source = file.toURI().toURL();
+		loads = 0;
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private NexusGroupData load(int n) {
+		loads++;
+		return new NexusGroupData(new double[n]);
+	}
+
+	@Test
+	public void testRepeatedRequestIsCached() throws Exception {
+		NexusGroupDataCache cache = new NexusGroupDataCache(100000);
+		NexusGroupData first = cache.get(source, AXIS, null, null, () -> load(10));
+		assertSame(first.getBuffer(), cache.get(source, AXIS, null, null, () -> load(10)).getBuffer());
+		assertEquals(1, loads);
+		assertEquals(0.5, cache.getHitRate(), 0);
+	}
+
+	@Test
+	public void testCallersCannotChangeCachedData() throws Exception {
+		NexusGroupDataCache cache = new NexusGroupDataCache(100000);
+		NexusGroupData first = cache.get(source, AXIS, null, null, () -> load(10));
+		first.toDataset().set(1.0, 0);
+		first.dimensions[0] = 5;
+		first.releaseData();
+		NexusGroupData second = cache.get(source, AXIS, null, null, () -> load(10));
+		assertNotSame(first, second);
+		assertArrayEquals(new int[] { 10 }, second.dimensions);
+		assertEquals(0.0, second.toDataset().getDouble(0), 0);
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testSlabsAreCachedSeparately() throws Exception {
+		NexusGroupDataCache cache = new NexusGroupDataCache(100000);
+		cache.get(source, AXIS, new int[] { 0 }, new int[] { 5 }, () -> load(5));
+		cache.get(source, AXIS, new int[] { 5 }, new int[] { 5 }, () -> load(5));
+		assertEquals(2, loads);
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testBoundedByBytes() throws Exception {
+		NexusGroupDataCache cache = new NexusGroupDataCache(8200);
+		cache.get(source, AXIS, null, null, () -> load(10));
+		cache.get(source, IMAGE, null, null, () -> load(1000));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		// too big to cache at all
+		cache.get(source, IMAGE, new int[] { 0 }, new int[] { 2000 }, () -> load(2000));
+		assertEquals(1, cache.size());
+		cache.get(source, IMAGE, null, null, () -> load(1000));
+		assertEquals(3, loads);
+		cache.get(source, AXIS, null, null, () -> load(10));
+		assertEquals(4, loads);
+	}
+
+	@Test
+	public void testModifiedFileIsReread() throws Exception {
+		NexusGroupDataCache cache = new NexusGroupDataCache(100000);
+		NexusGroupData first = cache.get(source, AXIS, null, null, () -> load(10));
+		Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() - 10000));
+		assertNotSame(first, cache.get(source, AXIS, null, null, () -> load(10)));
+		assertEquals(1, cache.getInvalidationCount());
+		assertEquals(2, loads);
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		NexusGroupDataCache cache = new NexusGroupDataCache(0);
+		cache.get(source, AXIS, null, null, () -> load(10));
+		cache.get(source, AXIS, null, null, () -> load(10));
+		assertEquals(2, loads);
+		assertEquals(0, cache.size());
+	}
+}
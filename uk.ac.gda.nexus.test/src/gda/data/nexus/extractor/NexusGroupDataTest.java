@@ -19,9 +19,20 @@
 package gda.data.nexus.extractor;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
 import org.eclipse.january.dataset.Dataset;
 import org.eclipse.january.dataset.DatasetFactory;
+import org.eclipse.january.dataset.DoubleDataset;
 import org.eclipse.january.dataset.ShapeUtils;
+import org.eclipse.january.dataset.Slice;
 import org.eclipse.january.dataset.StringDataset;
 import org.junit.Assert;
 import org.junit.Test;
@@ -65,4 +76,74 @@ public class NexusGroupDataTest {
 		s = ngd.toDataset();
 		Assert.assertEquals(strings, s);
 	}
+
+	@Test
+	public void testDatasetIsNotCopied() {
+		Dataset frame = DatasetFactory.createRange(DoubleDataset.class, 12).reshape(3, 4);
+		NexusGroupData ngd = NexusGroupData.createFromDataset(frame);
+		Dataset d = ngd.toDataset();
+		Assert.assertSame(frame.getBuffer(), d.getBuffer());
+		Assert.assertSame(ngd.getBuffer(), d.getBuffer());
+		Assert.assertEquals(frame, d);
+
+		ngd = NexusGroupData.createFromDataset(frame.getSliceView(new Slice(1, 3)));
+		d = ngd.toDataset();
+		Assert.assertEquals(8, ((double[]) d.getBuffer()).length);
+		Assert.assertEquals(frame.getSlice(new Slice(1, 3)), d);
+	}
+
+	@Test
+	public void testStringEncoding() {
+		String[] text = { "plain", "\u00b0C", "\u00c5ngstr\u00f6m", "\ud83d\ude00", "\ud83d", "" };
+		for (String t : text) {
+			Assert.assertEquals(t, t.getBytes(StandardCharsets.UTF_8).length, FixedLengthStrings.encodedLength(t));
+		}
+
+		int width = FixedLengthStrings.maxEncodedLength(text);
+		byte[] bdata = FixedLengthStrings.encode(text, -1);
+		Assert.assertEquals(text.length * width, bdata.length);
+		for (int i = 0; i < text.length; i++) {
+			String expected = new String(text[i].getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+			Assert.assertEquals(expected, FixedLengthStrings.decode(bdata, i * width, width));
+		}
+
+		// cut at whole characters
+		bdata = FixedLengthStrings.encode(new String[] { "abcdef", "a\u00b0\u00b0", null }, 4);
+		Assert.assertEquals(12, bdata.length);
+		Assert.assertEquals("abcd", FixedLengthStrings.decode(bdata, 0, 4));
+		Assert.assertEquals("a\u00b0", FixedLengthStrings.decode(bdata, 4, 4));
+		Assert.assertEquals("", FixedLengthStrings.decode(bdata, 8, 4));
+	}
+
+	@Test
+	public void testGetString() {
+		NexusGroupData ngd = new NexusGroupData(5, "one", "three", "\u00b0C");
+		byte[] bdata = (byte[]) ngd.getBuffer(true);
+		Assert.assertEquals(15, bdata.length);
+
+		ngd = new NexusGroupData(new int[] { 3, 5 }, bdata).asChar();
+		ngd.setMaxStringLength(5);
+		Assert.assertEquals("three", ngd.getString(1));
+		Assert.assertEquals("\u00b0C", ngd.getString(2));
+		Assert.assertArrayEquals(new String[] { "one", "three", "\u00b0C" }, (String[]) ngd.getBuffer());
+	}
+
+	@Test
+	public void testNestedArraysAreRead() throws IOException {
+		int[][] data = { { 1, 2 }, { 3 } };
+		Assert.assertArrayEquals(data, (int[][]) writeAndRead(data));
+		String[][] strings = { { "a" }, { "b", null } };
+		Assert.assertArrayEquals(strings, (String[][]) writeAndRead(strings));
+	}
+
+	@Test(expected = IOException.class)
+	public void testOtherObjectsAreNotRead() throws IOException {
+		writeAndRead(new ArrayList<>());
+	}
+
+	private static Serializable writeAndRead(Serializable data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryArrays.write(new DataOutputStream(bytes), data, false);
+		return BinaryArrays.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
 }
@@ -0,0 +1,156 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NexusSlabPrefetcherTest {
+
+	private static final String PATH = "entry1:NXentry/data:NXdata/frames:SDS";
+	private static final int[] FRAME = new int[] { 1, 4 };
+
+	private File file;
+	private URL source;
+	private Set<Integer> read;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("prefetch", ".nxs");
+		source = file.toURI().toURL();
+		read = Collections.synchronizedSet(new HashSet<>());
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private NexusGroupData read(@SuppressWarnings("unused") URL s, @SuppressWarnings("unused") String path, int[] start,
+			@SuppressWarnings("unused") int[] dims) {
+		read.add(start[0]);
+		return new NexusGroupData(start[0]);
+	}
+
+	private int[] shape(@SuppressWarnings("unused") URL s, @SuppressWarnings("unused") String path) {
+		return new int[] { 20, 4 };
+	}
+
+	@Test
+	public void testSequentialFramesAreReadAhead() throws Exception {
+		NexusSlabPrefetcher prefetcher = new NexusSlabPrefetcher(3, this::read, this::shape);
+		for (int i = 0; i < 20; i++) {
+			NexusGroupData data = prefetcher.getSlab(source, PATH, new int[] { i, 0 }, FRAME);
+			assertEquals(i, data.getFirstValue());
+		}
+		// the first two requests establish the pattern
+		assertEquals(3, prefetcher.getMissCount());
+		assertEquals(17, prefetcher.getHitCount());
+		// nothing is read past the end of the dataset
+		assertEquals(20, read.size());
+	}
+
+	@Test
+	public void testRandomAccessIsNotReadAhead() throws Exception {
+		NexusSlabPrefetcher prefetcher = new NexusSlabPrefetcher(3, this::read, this::shape);
+		for (int i : new int[] { 5, 2, 7, 1, 9 }) {
+			assertEquals(i, prefetcher.getSlab(source, PATH, new int[] { i, 0 }, FRAME).getFirstValue());
+		}
+		assertEquals(5, prefetcher.getMissCount());
+		assertEquals(0, prefetcher.getHitCount());
+		assertEquals(5, read.size());
+	}
+
+	@Test
+	public void testStrideIsFollowed() throws Exception {
+		NexusSlabPrefetcher prefetcher = new NexusSlabPrefetcher(2, this::read, this::shape);
+		for (int i = 0; i < 20; i += 4) {
+			assertEquals(i, prefetcher.getSlab(source, PATH, new int[] { i, 0 }, FRAME).getFirstValue());
+		}
+		assertEquals(3, prefetcher.getMissCount());
+		assertEquals(2, prefetcher.getHitCount());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		NexusSlabPrefetcher prefetcher = new NexusSlabPrefetcher(0, this::read, this::shape);
+		for (int i = 0; i < 5; i++) {
+			prefetcher.getSlab(source, PATH, new int[] { i, 0 }, FRAME);
+		}
+		assertEquals(5, prefetcher.getMissCount());
+		assertEquals(5, read.size());
+	}
+
+	@Test
+	public void testShapeReadDoesNotHoldUpOtherFiles() throws Exception {
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		NexusSlabPrefetcher prefetcher = new NexusSlabPrefetcher(2, this::read, (s, path) -> {
+			if (s.equals(source)) {
+				reading.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return shape(s, path);
+		});
+		File other = File.createTempFile("prefetch", ".nxs");
+		try {
+			CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> {
+				try {
+					for (int i = 0; i < 3; i++) {
+						prefetcher.getSlab(source, PATH, new int[] { i, 0 }, FRAME);
+					}
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			assertTrue(reading.await(10, TimeUnit.SECONDS));
+			URL otherSource = other.toURI().toURL();
+			CompletableFuture<Void> free = CompletableFuture.runAsync(() -> {
+				try {
+					prefetcher.getSlab(otherSource, PATH, new int[] { 0, 0 }, FRAME);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			free.get(10, TimeUnit.SECONDS);
+			release.countDown();
+			blocked.get(10, TimeUnit.SECONDS);
+		} finally {
+			release.countDown();
+			other.delete();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.eclipse.january.dataset.Dataset;
+import org.eclipse.january.dataset.DatasetFactory;
+import org.eclipse.january.dataset.DoubleDataset;
+import org.junit.After;
+import org.junit.Test;
+
+public class OffHeapBufferTest {
+
+	@After
+	public void tearDown() {
+		OffHeapBuffer.configure(0, false);
+	}
+
+	private static double[] values(int n) {
+		double[] d = new double[n];
+		for (int i = 0; i < n; i++) {
+			d[i] = i + 0.5;
+		}
+		return d;
+	}
+
+	@Test
+	public void testSmallDataStaysOnHeap() {
+		OffHeapBuffer.configure(1024, false);
+		double[] d = values(10);
+		NexusGroupData ngd = new NexusGroupData(d);
+		assertTrue(ngd.getBuffer() == d);
+	}
+
+	@Test
+	public void testLargeDataIsStoredOffHeap() {
+		OffHeapBuffer.configure(1024, false);
+		long before = OffHeapBuffer.getTotalStoredBytes();
+		double[] d = values(1000);
+		NexusGroupData ngd = new NexusGroupData(new int[] { 10, 100 }, d);
+		assertEquals(8000, OffHeapBuffer.getTotalStoredBytes() - before);
+		assertFalse(ngd.getBuffer() == d);
+		assertArrayEquals(d, (double[]) ngd.getBuffer(), 0);
+		assertEquals(0.5, ngd.getFirstValue());
+
+		Dataset expected = DatasetFactory.createFromObject(DoubleDataset.class, d, 10, 100);
+		assertEquals(expected, ngd.toDataset());
+		assertEquals(ngd, new NexusGroupData(new int[] { 10, 100 }, d));
+	}
+
+	@Test
+	public void testOffHeapEqualsOnHeap() {
+		NexusGroupData onHeap = new NexusGroupData(values(1000));
+		OffHeapBuffer.configure(1024, true);
+		NexusGroupData offHeap = new NexusGroupData(values(1000));
+		assertEquals(onHeap, offHeap);
+		assertEquals(offHeap, onHeap);
+		assertFalse(offHeap.equals(new NexusGroupData(values(999))));
+	}
+
+	@Test
+	public void testDatasetIsStoredOffHeap() {
+		OffHeapBuffer.configure(1024, true);
+		Dataset frame = DatasetFactory.createRange(DoubleDataset.class, 1000).reshape(10, 100);
+		NexusGroupData ngd = NexusGroupData.createFromDataset(frame);
+		assertFalse(ngd.getBuffer() == frame.getBuffer());
+		assertEquals(frame, ngd.toDataset());
+	}
+
+	@Test
+	public void testSerializedAsArray() throws Exception {
+		OffHeapBuffer.configure(1024, false);
+		NexusGroupData ngd = new NexusGroupData(values(1000));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(ngd);
+		}
+		OffHeapBuffer.configure(0, false);
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			NexusGroupData read = (NexusGroupData) in.readObject();
+			assertTrue(read.getBuffer() instanceof double[]);
+			assertEquals(ngd, read);
+		}
+	}
+
+	@Test
+	public void testBinaryForm() throws Exception {
+		OffHeapBuffer.configure(1024, false);
+		NexusGroupData ngd = new NexusGroupData(values(1000));
+		for (boolean deflate : new boolean[] { false, true }) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				ngd.write(out, deflate);
+			}
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				NexusGroupData read = NexusGroupData.read(in);
+				assertFalse(read.getBuffer() == null);
+				assertEquals(ngd, read);
+			}
+		}
+	}
+
+	@Test
+	public void testHeapCopyIsShared() {
+		OffHeapBuffer.configure(1024, false);
+		NexusGroupData ngd = new NexusGroupData(values(1000));
+		Object buffer = ngd.getBuffer();
+		long copied = OffHeapBuffer.getCopiedBytes();
+		assertTrue(ngd.getBuffer() == buffer);
+		assertEquals(copied, OffHeapBuffer.getCopiedBytes());
+	}
+
+	@Test
+	public void testSliceCopiesOnlySlab() {
+		NexusGroupData onHeap = new NexusGroupData(new int[] { 20, 50 }, DoubleDataset.class, values(1000), null);
+		OffHeapBuffer.configure(1024, false);
+		NexusGroupData ngd = new NexusGroupData(new int[] { 20, 50 }, DoubleDataset.class, values(1000), null);
+		int[] start = { 3, 10 };
+		int[] stop = { 7, 30 };
+		long copied = OffHeapBuffer.getCopiedBytes();
+		NexusGroupData slice = ngd.getSlice(start, stop);
+		assertEquals(4 * 20 * Double.BYTES, OffHeapBuffer.getCopiedBytes() - copied);
+		assertEquals(onHeap.getSlice(start, stop).toDataset(), slice.toDataset());
+		assertArrayEquals(new int[] { 4, 20 }, slice.getDimensions());
+	}
+}
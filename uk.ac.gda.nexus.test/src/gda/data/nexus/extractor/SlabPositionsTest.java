@@ -0,0 +1,88 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SlabPositionsTest {
+
+	private static List<int[]> all(SlabPositions positions) {
+		List<int[]> starts = new ArrayList<>();
+		while (positions.hasNext()) {
+			starts.add(positions.next());
+		}
+		return starts;
+	}
+
+	@Test
+	public void testFramesInOrder() {
+		SlabPositions positions = new SlabPositions(new int[] { 3, 4, 5 }, new int[] { 1, -1, -1 }, null);
+		assertEquals(3, positions.getCount());
+		List<int[]> starts = all(positions);
+		assertEquals(3, starts.size());
+		for (int i = 0; i < 3; i++) {
+			assertArrayEquals(new int[] { i, 0, 0 }, starts.get(i));
+			assertArrayEquals(new int[] { 1, 4, 5 }, positions.getShape(starts.get(i)));
+		}
+	}
+
+	@Test
+	public void testLastSlabIsCutShort() {
+		SlabPositions positions = new SlabPositions(new int[] { 10 }, new int[] { 4 }, null);
+		List<int[]> starts = all(positions);
+		assertEquals(3, starts.size());
+		assertArrayEquals(new int[] { 8 }, starts.get(2));
+		assertArrayEquals(new int[] { 2 }, positions.getShape(starts.get(2)));
+	}
+
+	@Test
+	public void testOrder() {
+		SlabPositions positions = new SlabPositions(new int[] { 2, 3 }, new int[] { 1, 1 }, new int[] { 1, 0 });
+		List<int[]> starts = all(positions);
+		assertEquals(6, starts.size());
+		assertArrayEquals(new int[] { 0, 0 }, starts.get(0));
+		assertArrayEquals(new int[] { 1, 0 }, starts.get(1));
+		assertArrayEquals(new int[] { 0, 1 }, starts.get(2));
+		assertArrayEquals(new int[] { 1, 2 }, starts.get(5));
+	}
+
+	@Test
+	public void testEmptyDataset() {
+		SlabPositions positions = new SlabPositions(new int[] { 0, 3 }, new int[] { 1, 1 }, null);
+		assertEquals(0, positions.getCount());
+		assertFalse(positions.hasNext());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadOrder() {
+		new SlabPositions(new int[] { 2, 3 }, new int[] { 1, 1 }, new int[] { 1, 1 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyOrder() {
+		new SlabPositions(new int[] { 2, 3 }, new int[] { 1, 1 }, new int[0]);
+	}
+}
@@ -0,0 +1,205 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gda.data.nexus.extractor.INexusDataGetter;
+import gda.data.nexus.extractor.INexusTreeProcessor.RESPONSE;
+import gda.data.nexus.extractor.NexusExtractor;
+import gda.data.nexus.extractor.NexusGroupData;
+
+public class NexusStructureIndexTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+	private NexusTreeTopNode structure;
+
+	@Before
+	public void setUp() throws Exception {
+		file = folder.newFile("1.nxs");
+		Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+		structure = new NexusTreeTopNode(new NexusTreeNode("", "", null), file.toURI().toURL());
+		NexusTreeNode entry = new NexusTreeNode("entry1", NexusExtractor.NXEntryClassName, structure);
+		structure.addChildNode(entry);
+		NexusTreeNode detector = new NexusTreeNode("detector", NexusExtractor.NXDetectorClassName, entry);
+		entry.addChildNode(detector);
+		NexusTreeNode data = new NexusTreeNode("data", NexusExtractor.SDSClassName, detector,
+				new NexusGroupData(new int[] { 2, 3 }, 1, 2, 3, 4, 5, 6));
+		detector.addChildNode(data);
+		data.addChildNode(new NexusTreeNode("units", NexusExtractor.AttrClassName, data, new NexusGroupData("counts")));
+		entry.addChildNode(new NexusTreeNode("title", NexusExtractor.SDSClassName, entry, new NexusGroupData("scan")));
+		entry.addChildNode(new NexusTreeNode("default", NexusExtractor.AttrClassName, entry, new NexusGroupData("detector")));
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty(NexusStructureIndex.DIRECTORY_PROPERTY);
+	}
+
+	private BasicFileAttributes attributes() throws Exception {
+		return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+	}
+
+	@Test
+	public void testReadWrite() throws Exception {
+		Assert.assertNull(NexusStructureIndex.read(file.getPath()));
+		NexusStructureIndex.write(file.getPath(), attributes(), structure);
+		Assert.assertEquals(new File(folder.getRoot(), ".1.nxs.nxidx").toPath(), NexusStructureIndex.indexPath(file.getPath()));
+		Assert.assertTrue(structure.structurallyEquals(NexusStructureIndex.read(file.getPath())));
+
+		Files.write(file.toPath(), new byte[] { 4 }, StandardOpenOption.APPEND);
+		Assert.assertNull(NexusStructureIndex.read(file.getPath()));
+	}
+
+	@Test
+	public void testSerializedIndexIsNotRead() throws Exception {
+		BasicFileAttributes attrs = attributes();
+		try (OutputStream out = Files.newOutputStream(NexusStructureIndex.indexPath(file.getPath()))) {
+			DataOutputStream dos = new DataOutputStream(out);
+			dos.writeInt(0x4e584958);
+			dos.writeUTF(file.getAbsolutePath());
+			dos.writeLong(attrs.size());
+			dos.writeLong(attrs.lastModifiedTime().toMillis());
+			new NexusTreeCodec(NexusTreeCodec.Encoding.JAVA).write(structure, dos);
+		}
+		Assert.assertNull(NexusStructureIndex.read(file.getPath()));
+	}
+
+	@Test
+	public void testDirectory() throws Exception {
+		File dir = new File(folder.getRoot(), "indexes");
+		System.setProperty(NexusStructureIndex.DIRECTORY_PROPERTY, dir.getPath());
+		NexusStructureIndex.write(file.getPath(), attributes(), structure);
+		Assert.assertEquals(dir.toPath(), NexusStructureIndex.indexPath(file.getPath()).getParent());
+		Assert.assertTrue(Files.exists(NexusStructureIndex.indexPath(file.getPath())));
+		Assert.assertTrue(structure.structurallyEquals(NexusStructureIndex.read(file.getPath())));
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		NexusTreeBuilder builder = new NexusTreeBuilder(new NexusTreeNodeSelection(NexusExtractor.topName,
+				NexusExtractor.topClass, NexusTreeNodeSelection.GET_THIS_AND_BELOW, NexusTreeNodeSelection.NAME_AND_DIMS));
+		NexusStructureIndex.replay(file.getPath(), structure, builder, false, null);
+		INexusTree tree = builder.getTree();
+		Assert.assertTrue(structure.structurallyEquals(tree));
+		Assert.assertEquals(structure.getSource(), ((NexusTreeTopNode) tree).getSource());
+	}
+
+	@Test
+	public void testReplaySelection() throws Exception {
+		NexusTreeNodeSelection top = new NexusTreeNodeSelection(NexusExtractor.topName, NexusExtractor.topClass,
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_AND_DIMS);
+		top.addChildNode(new NexusTreeNodeSelection("entry1", NexusExtractor.NXEntryClassName,
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_AND_DIMS));
+		NexusTreeBuilder builder = new NexusTreeBuilder(top);
+		NexusStructureIndex.replay(file.getPath(), structure, builder, false, null);
+		INexusTree tree = builder.getTree();
+		Assert.assertEquals(1, tree.getNumberOfChildNodes());
+		Assert.assertEquals(0, tree.getChildNode(0).getNumberOfChildNodes());
+	}
+
+	@Test
+	public void testReplaySelectionOfAttributes() throws Exception {
+		NexusTreeNodeSelection data = new NexusTreeNodeSelection("data", NexusExtractor.SDSClassName,
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_AND_DIMS);
+		NexusTreeNodeSelection top = selection(data);
+		NexusTreeBuilder builder = new NexusTreeBuilder(top);
+		NexusStructureIndex.replay(file.getPath(), structure, builder, false, null);
+		Assert.assertEquals(0, builder.getTree().getNode("entry1/detector/data").getNumberOfChildNodes());
+
+		data.addChildNode(new NexusTreeNodeSelection("units", NexusExtractor.AttrClassName,
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_AND_DIMS));
+		builder = new NexusTreeBuilder(top);
+		NexusStructureIndex.replay(file.getPath(), structure, builder, false, null);
+		INexusTree node = builder.getTree().getNode("entry1/detector/data");
+		Assert.assertEquals(1, node.getNumberOfChildNodes());
+		Assert.assertEquals("counts", node.getChildNode("units", NexusExtractor.AttrClassName).getData().getString(0));
+	}
+
+	private static NexusTreeNodeSelection selection(NexusTreeNodeSelection data) {
+		NexusTreeNodeSelection top = new NexusTreeNodeSelection(NexusExtractor.topName, NexusExtractor.topClass,
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_AND_DIMS);
+		NexusTreeNodeSelection entry = new NexusTreeNodeSelection("entry1", NexusExtractor.NXEntryClassName,
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_AND_DIMS);
+		top.addChildNode(entry);
+		NexusTreeNodeSelection detector = new NexusTreeNodeSelection("detector", NexusExtractor.NXDetectorClassName,
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_AND_DIMS);
+		entry.addChildNode(detector);
+		detector.addChildNode(data);
+		return top;
+	}
+
+	/**
+	 * A getter that cannot read attributes together is given them one at a time after SDS_ATTR
+	 */
+	@Test
+	public void testGetterWithoutBatchAttributes() throws Exception {
+		NexusTreeBuilder builder = new NexusTreeBuilder(new NexusTreeNodeSelection(NexusExtractor.topName,
+				NexusExtractor.topClass, NexusTreeNodeSelection.GET_THIS_AND_BELOW, NexusTreeNodeSelection.NAME_AND_DIMS));
+		drive(structure, builder);
+		Assert.assertTrue(structure.structurallyEquals(builder.getTree()));
+	}
+
+	/**
+	 * Pass the node to the builder as an extractor whose getter has only the methods that must be implemented would
+	 */
+	private static void drive(INexusTree node, NexusTreeBuilder builder) throws Exception {
+		RESPONSE response = builder.beginElement(node.getName(), node.getNxClass(), new INexusDataGetter() {
+			@Override
+			public NexusGroupData getDataForCurrentProcessedGroup(String name, String nxClass, boolean getData) {
+				return node.getData();
+			}
+
+			@Override
+			public NexusGroupData getAttributeOfCurrentProcessedGroup(String attrName) {
+				INexusTree attr = node.getChildNode(attrName, NexusExtractor.AttrClassName);
+				return attr == null ? null : attr.getData();
+			}
+
+			@Override
+			public URL getSourceId() {
+				return ((NexusTreeTopNode) node).getSource();
+			}
+		});
+		if (NexusExtractor.SDSClassName.equals(node.getNxClass())) {
+			Assert.assertEquals(RESPONSE.SDS_ATTR, response);
+		}
+		if (response == RESPONSE.GO_INTO || response == RESPONSE.SDS_ATTR) {
+			for (INexusTree child : node) {
+				drive(child, builder);
+			}
+			builder.endElement();
+		}
+	}
+}
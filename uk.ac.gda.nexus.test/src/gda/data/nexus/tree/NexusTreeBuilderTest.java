@@ -23,6 +23,7 @@ import static org.junit.Assume.assumeNotNull;
 import java.io.File;
 import java.io.StringReader;
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.dawnsci.nexus.NexusException;
 import org.junit.After;
@@ -32,7 +33,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.xml.sax.InputSource;
 
+import gda.data.nexus.extractor.NexusExtractor;
 import gda.data.nexus.extractor.NexusExtractorException;
+import gda.data.nexus.extractor.NexusSlabIterator;
 import gda.util.TestUtils;
 
 public class NexusTreeBuilderTest {
@@ -82,4 +85,52 @@ public class NexusTreeBuilderTest {
 		Assert.assertEquals("test",tree.getChildNode(0).getChildNode(26).getChildNode(22).getChildNode(5).getData().dimensions[0],11);
 		Assert.assertEquals("test",tree.getChildNode(0).getChildNode(26).getChildNode(22).getChildNode(5).getData().getBuffer(),null);
 	}
+
+	@Test
+	public void testNexusTreeBuilderAsyncMatchesSynchronous() throws Exception {
+		String fileName = TestFileFolder + File.separator + "327.nxs";
+		CompletableFuture<INexusTree> first = NexusTreeBuilder.getNexusTreeAsync(fileName, getSelForAllButData(), null);
+		CompletableFuture<INexusTree> second = NexusTreeBuilder.getNexusTreeAsync(fileName, getSelForAllButData(), null);
+		String expected = NexusTreeBuilder.getNexusTree(fileName, getSelForAllButData()).toText("", ":", "/", "|");
+		Assert.assertEquals(expected, first.get().toText("", ":", "/", "|"));
+		Assert.assertEquals(expected, second.get().toText("", ":", "/", "|"));
+	}
+
+	@Test
+	public void testNexusTreeBuilderParallelMatchesSequential() throws Exception {
+		String fileName = TestFileFolder + File.separator + "327.nxs";
+		String expected = NexusTreeBuilder.getNexusTree(fileName, getSelForAllButData()).toText("", ":", "/", "|");
+		INexusTree tree = NexusTreeBuilder.getNexusTreeParallel(fileName, getSelForAllButData(), null);
+		Assert.assertEquals(expected, tree.toText("", ":", "/", "|"));
+	}
+
+	@Test
+	public void testLazyNexusTreeMatchesBuiltTree() throws Exception {
+		String fileName = TestFileFolder + File.separator + "327.nxs";
+		INexusTree built = NexusTreeBuilder.getNexusTree(fileName, getSelForAllButData());
+		INexusTree lazy = NexusTreeBuilder.getLazyNexusTree(fileName, false);
+		INexusTree expected = built.getChildNode(0).getChildNode(26).getChildNode(22).getChildNode(5);
+		INexusTree node = lazy;
+		for (INexusTree n : new INexusTree[] { built.getChildNode(0), built.getChildNode(0).getChildNode(26),
+				built.getChildNode(0).getChildNode(26).getChildNode(22), expected }) {
+			node = node.getChildNode(n.getName(), n.getNxClass());
+		}
+		Assert.assertEquals(expected.getData().dimensions[0], node.getData().dimensions[0]);
+		Assert.assertEquals(null, node.getData().getBuffer());
+	}
+
+	@Test
+	public void testSlabIteratorMatchesSlabs() throws Exception {
+		INexusTree tree = NexusTreeBuilder.getNexusTree(TestFileFolder + File.separator + "327.nxs", getSelForAllButData());
+		INexusTree node = tree.getChildNode(0).getChildNode(26).getChildNode(22).getChildNode(5);
+		try (NexusSlabIterator it = NexusExtractor.getNexusGroupDataSlabs(node, new int[] { 3 }, null)) {
+			Assert.assertEquals(4, it.getCount());
+			for (int start = 0; start < 11; start += 3) {
+				int[] dims = new int[] { Math.min(3, 11 - start) };
+				Assert.assertEquals(NexusExtractor.getNexusGroupDataSlab(node, new int[] { start }, dims), it.next());
+				Assert.assertArrayEquals(new int[] { start }, it.getPosition());
+			}
+			Assert.assertFalse(it.hasNext());
+		}
+	}
 }
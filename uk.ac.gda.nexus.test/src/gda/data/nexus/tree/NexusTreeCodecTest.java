@@ -0,0 +1,105 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import gda.data.nexus.extractor.NexusExtractor;
+import gda.data.nexus.extractor.NexusGroupData;
+
+public class NexusTreeCodecTest {
+	private NexusTreeTopNode top;
+
+	@Before
+	public void setUp() throws Exception {
+		top = new NexusTreeTopNode(new NexusTreeNode("", "", null), new URL("file:/scans/1.nxs"));
+		NexusTreeNode entry = new NexusTreeNode("entry1", NexusExtractor.NXEntryClassName, top);
+		top.addChildNode(entry);
+		for (int d = 0; d < 3; d++) {
+			NexusTreeNode detector = new NexusTreeNode("detector" + d, NexusExtractor.NXDetectorClassName, entry);
+			entry.addChildNode(detector);
+			double[] values = new double[5000];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = i % 10;
+			}
+			NexusTreeNode data = new NexusTreeNode("data", NexusExtractor.SDSClassName, detector,
+					new NexusGroupData(new int[] { 50, 100 }, values));
+			data.setIsPointDependent(true);
+			detector.addChildNode(data);
+			data.addChildNode(new NexusTreeNode("units", NexusExtractor.AttrClassName, data, new NexusGroupData("counts")));
+			detector.addChildNode(new NexusTreeScanDataLeaf("count", detector, new NexusGroupData(d)));
+		}
+		entry.addChildNode(new NexusTreeNode("image", NexusExtractor.SDSClassName, entry,
+				new NexusGroupData(new int[][] { { 1, 2 }, { 3, 4 } })));
+		entry.addChildNode(new NexusTreeNode("raw", NexusExtractor.SDSClassName, entry,
+				new NexusGroupData(new short[] { 1, -1, 3 }).setUnsigned()));
+		entry.addChildNode(new NexusTreeNode("names", NexusExtractor.SDSClassName, entry,
+				new NexusGroupData(20, "x", null, "ångström")));
+	}
+
+	private void assertRoundTrip(NexusTreeCodec.Encoding encoding) throws IOException {
+		INexusTree read = new NexusTreeCodec(encoding).decode(new NexusTreeCodec(encoding).encode(top));
+		Assert.assertTrue(top.structurallyEquals(read));
+		Assert.assertEquals(top.getSource(), ((NexusTreeTopNode) read).getSource());
+		Assert.assertTrue(read.getNode("entry1/detector2/count") instanceof NexusTreeScanDataLeaf);
+		Assert.assertSame(read.getNode("entry1"), read.getNode("entry1/detector0").getParentNode());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		assertRoundTrip(NexusTreeCodec.Encoding.BINARY);
+		assertRoundTrip(NexusTreeCodec.Encoding.DEFLATE);
+		assertRoundTrip(NexusTreeCodec.Encoding.JAVA);
+	}
+
+	@Test
+	public void testSize() throws IOException {
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+			oos.writeObject(top);
+		}
+		int binary = new NexusTreeCodec().encode(top).length;
+		int deflated = new NexusTreeCodec(NexusTreeCodec.Encoding.DEFLATE).encode(top).length;
+		Assert.assertTrue(binary < serialized.size());
+		Assert.assertTrue(deflated < binary / 10);
+	}
+
+	@Test
+	public void testReadsSerializedTree() throws IOException {
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+			oos.writeObject(top);
+		}
+		INexusTree read = new NexusTreeCodec().read(new ByteArrayInputStream(serialized.toByteArray()));
+		Assert.assertTrue(top.structurallyEquals(read));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsOtherData() throws IOException {
+		new NexusTreeCodec().decode(new byte[] { 1, 2, 3, 4 });
+	}
+}
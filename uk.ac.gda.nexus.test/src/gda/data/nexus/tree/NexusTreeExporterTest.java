@@ -0,0 +1,68 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package gda.data.nexus.tree;
+
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import gda.data.nexus.extractor.NexusGroupData;
+
+public class NexusTreeExporterTest {
+	private NexusTreeNode top;
+
+	@Before
+	public void setUp() {
+		top = new NexusTreeNode("", "", null);
+		NexusTreeNode entry = new NexusTreeNode("entry1", "NXentry", top);
+		top.addChildNode(entry);
+		NexusTreeNode x = new NexusTreeNode("x", "SDS", entry, new NexusGroupData(1.5, 2.5, 3.5));
+		entry.addChildNode(x);
+		x.addChildNode(new NexusTreeNode("units", "Attr", x, new NexusGroupData("mm")));
+	}
+
+	@Test
+	public void testXML() throws Exception {
+		String expected = "<top @name=><NXentry @name=entry1><SDS @name=x><dimensions><dimension>3</dimension></dimensions>"
+				+ "<type>NX_FLOAT64</type><value>1.5,2.5,3.5,</value><Attr @name=units><dimensions><dimension>2</dimension>"
+				+ "</dimensions><type>NX_CHAR</type><value>mm</value></Attr></SDS></NXentry></top>";
+		Assert.assertEquals(expected, top.toXML(false, true));
+
+		StringWriter out = new StringWriter();
+		new NexusTreeExporter(2).writeXML(top, false, false, out);
+		Assert.assertTrue(out.toString(), out.toString().contains(
+				"<values><value>1.5</value><value>2.5</value><value>...</value></values>"));
+	}
+
+	@Test
+	public void testText() throws Exception {
+		String expected = "|:\n"
+				+ "|:|NXentry:entry1\n"
+				+ "|:|NXentry:entry1|SDS:x/dimensions:3/type:NX_FLOAT64/data:1.5,2.5,3.5,\n"
+				+ "|:|NXentry:entry1|SDS:x/dimensions:3/type:NX_FLOAT64/data:1.5,2.5,3.5,|Attr:units/dimensions:2/type:NX_CHAR/data:mm\n";
+		Assert.assertEquals(expected, top.toText("", ":", "/", "|"));
+
+		StringWriter out = new StringWriter();
+		new NexusTreeExporter(1).writeText(top, "", ":", "/", "|", true, out);
+		Assert.assertEquals(expected.replace("2.5,3.5,", "..."), out.toString());
+	}
+}
@@ -0,0 +1,126 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import gda.data.nexus.extractor.NexusExtractor;
+
+public class NexusTreeNodeMatcherTest {
+
+	private static NexusTreeNodeMatcher.State top(NexusTreeNodeSelection selection) {
+		return new NexusTreeNodeMatcher(selection).start.next(NexusExtractor.topName, NexusExtractor.topClass);
+	}
+
+	@Test
+	public void testDataSetNames() {
+		NexusTreeNodeMatcher.State top = top(NexusTreeNodeSelection.createTreeForDataSetNames(Arrays.asList("x"), true));
+		assertFalse(top.getSelection().isSkip());
+		NexusTreeNodeMatcher.State entry = top.next("entry1", NexusExtractor.NXEntryClassName);
+		assertFalse(entry.getSelection().isSkip());
+		assertTrue(entry.next("instrument", NexusExtractor.NXInstrumentClassName).getSelection().isSkip());
+		NexusTreeNodeMatcher.State data = entry.next("data", NexusExtractor.NXDataClassName);
+		assertFalse(data.getSelection().isGetThisAndBelow());
+		assertTrue(data.next("y", NexusExtractor.SDSClassName).getSelection().isSkip());
+		NexusTreeNodeMatcher.State x = data.next("x", NexusExtractor.SDSClassName);
+		assertTrue(x.getSelection().isGetThisAndBelow());
+		assertTrue(x.getSelection().isGetData());
+		// everything below is wanted
+		assertSame(x.getSelection(), x.next("units", NexusExtractor.AttrClassName).getSelection());
+	}
+
+	@Test
+	public void testChildFilter() {
+		NexusTreeNodeMatcher.State top = top(NexusTreeNodeSelection.createTreeForDataSetNames(Arrays.asList("d1.x"), false));
+		NexusTreeNodeMatcher.State entry = top.next("entry1", NexusExtractor.NXEntryClassName);
+		assertTrue(top.mayMatchName("entry1"));
+		assertFalse(top.mayMatch("entry1", "NXcollection"));
+		assertTrue(entry.mayMatchName("d1"));
+		assertFalse(entry.mayMatchName("instrument"));
+		NexusTreeNodeMatcher.State data = entry.next("d1", NexusExtractor.NXDataClassName);
+		assertTrue(data.mayMatch("x", NexusExtractor.SDSClassName));
+		assertFalse(data.mayMatchName("y"));
+		NexusTreeNodeMatcher.State x = data.next("x", NexusExtractor.SDSClassName);
+		assertTrue(x.mayMatchName("units"));
+	}
+
+	@Test
+	public void testRegularExpressions() {
+		NexusTreeNodeSelection top = new NexusTreeNodeSelection("", "", NexusTreeNodeSelection.GET_THIS_ITEM,
+				NexusTreeNodeSelection.NAME_ONLY);
+		NexusTreeNodeSelection entry = new NexusTreeNodeSelection("", "NXentry", NexusTreeNodeSelection.GET_THIS_ITEM,
+				NexusTreeNodeSelection.NAME_ONLY);
+		entry.addChildNode(new NexusTreeNodeSelection("det[0-9]+", "NX(detector|monitor)",
+				NexusTreeNodeSelection.GET_THIS_AND_BELOW, NexusTreeNodeSelection.NAME_AND_DIMS));
+		top.addChildNode(entry);
+		NexusTreeNodeMatcher.State e = top(top).next("entry1", "NXentry");
+		assertFalse(e.next("det12", "NXmonitor").getSelection().isSkip());
+		assertTrue(e.next("det", "NXdetector").getSelection().isSkip());
+		assertTrue(e.next("det1", "NXdata").getSelection().isSkip());
+	}
+
+	@Test
+	public void testAllBelowPassesOnWhenChildrenDoNotMatch() {
+		// as createTreeForAllMetaData
+		NexusTreeNodeSelection top = new NexusTreeNodeSelection("", "", NexusTreeNodeSelection.GET_THIS_ITEM,
+				NexusTreeNodeSelection.NAME_ONLY);
+		NexusTreeNodeSelection entry = selection("NXentry", NexusTreeNodeSelection.GET_THIS_AND_BELOW, top);
+		selection("NXdata", NexusTreeNodeSelection.SKIP_THIS_ITEM, entry);
+		NexusTreeNodeSelection instrument = selection("NXinstrument", NexusTreeNodeSelection.GET_THIS_AND_BELOW, entry);
+		NexusTreeNodeSelection detector = selection("NXdetector", NexusTreeNodeSelection.GET_THIS_AND_BELOW, instrument);
+		detector.addChildNode(new NexusTreeNodeSelection("data", "SDS", NexusTreeNodeSelection.GET_THIS_AND_BELOW,
+				NexusTreeNodeSelection.NAME_AND_DIMS));
+
+		NexusTreeNodeMatcher.State e = top(top).next("entry1", NexusExtractor.NXEntryClassName);
+		assertTrue(e.getSelection().isGetThisAndBelow());
+		assertTrue(e.next("data", NexusExtractor.NXDataClassName).getSelection().isSkip());
+		assertFalse(e.next("sample", "NXsample").getSelection().isSkip());
+		NexusTreeNodeMatcher.State d = e.next("instrument", NexusExtractor.NXInstrumentClassName)
+				.next("pilatus", NexusExtractor.NXDetectorClassName);
+		assertFalse(d.next("data", NexusExtractor.SDSClassName).getSelection().isGetData());
+		assertTrue(d.next("count_time", NexusExtractor.SDSClassName).getSelection().isGetData());
+	}
+
+	private static NexusTreeNodeSelection selection(String nxClass, int wanted, NexusTreeNodeSelection parent) {
+		NexusTreeNodeSelection s = new NexusTreeNodeSelection("", nxClass, wanted, NexusTreeNodeSelection.NAME_DIMS_AND_DATA);
+		parent.addChildNode(s);
+		return s;
+	}
+
+	@Test
+	public void testLaterChangesAreNotSeen() {
+		NexusTreeNodeSelection top = new NexusTreeNodeSelection("", "", NexusTreeNodeSelection.GET_THIS_ITEM,
+				NexusTreeNodeSelection.NAME_ONLY);
+		NexusTreeNodeSelection entry = new NexusTreeNodeSelection("entry1", "NXentry",
+				NexusTreeNodeSelection.GET_THIS_ITEM, NexusTreeNodeSelection.NAME_ONLY);
+		top.addChildNode(entry);
+		NexusTreeNodeMatcher.State state = top(top);
+		entry.setWanted(NexusTreeNodeSelection.SKIP_THIS_ITEM);
+		entry.setName("entry2");
+		NexusTreeNodeMatcher.State e = state.next("entry1", "NXentry");
+		assertFalse(e.getSelection().isSkip());
+		assertFalse(e.getSelection().isGetData());
+	}
+}
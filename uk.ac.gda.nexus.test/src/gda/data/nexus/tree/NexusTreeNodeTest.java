@@ -0,0 +1,243 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package gda.data.nexus.tree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gda.data.nexus.extractor.NexusExtractor;
+import gda.data.nexus.extractor.NexusGroupData;
+
+public class NexusTreeNodeTest {
+
+	private static NexusTreeNode createGroup(int children) {
+		NexusTreeNode group = new NexusTreeNode("entry1", NexusExtractor.NXEntryClassName, null);
+		for (int i = 0; i < children; i++) {
+			group.addChildNode(new NexusTreeNode("item" + i, NexusExtractor.SDSClassName, group, new NexusGroupData(i)));
+			group.addChildNode(new NexusTreeNode("attr" + i, NexusExtractor.AttrClassName, group, new NexusGroupData("value" + i)));
+		}
+		return group;
+	}
+
+	@Test
+	public void testChildLookup() {
+		for (int n : new int[] { 2, 100 }) {
+			NexusTreeNode group = createGroup(n);
+			INexusTree item = group.getChildNode("item1", NexusExtractor.SDSClassName);
+			Assert.assertSame(group.getChildNode(2), item);
+			Assert.assertNull(group.getChildNode("item1", NexusExtractor.AttrClassName));
+			Assert.assertSame(item, group.getNode("item1"));
+			Assert.assertNull(group.getNode("missing"));
+
+			Assert.assertEquals("value1", group.getAttribute("attr1"));
+			Assert.assertNull(group.getAttribute("item1"));
+			Map<String, Serializable> attributes = group.getAttributes();
+			Assert.assertEquals(n, attributes.size());
+			Assert.assertEquals("value0", attributes.get("attr0"));
+
+			// first of several with the same name is found until it is removed
+			NexusTreeNode second = new NexusTreeNode("item1", NexusExtractor.SDSClassName, group);
+			group.addChildNode(second);
+			Assert.assertSame(item, group.getChildNode("item1", NexusExtractor.SDSClassName));
+			group.removeChildNode(item);
+			Assert.assertSame(second, group.getChildNode("item1", NexusExtractor.SDSClassName));
+
+			// order is kept
+			group.setPrioritised(second);
+			Assert.assertSame(second, group.getChildNode(0));
+			Assert.assertSame(second, group.getChildNode("item1", NexusExtractor.SDSClassName));
+			Assert.assertEquals("item0", group.getChildNode(1).getName());
+		}
+	}
+
+	@Test
+	public void testTreeLookup() {
+		NexusTreeNode top = new NexusTreeNode("", "", null);
+		NexusTreeNode entry = new NexusTreeNode("entry1", NexusExtractor.NXEntryClassName, top);
+		top.addChildNode(entry);
+		NexusTreeNode instrument = new NexusTreeNode("instrument", NexusExtractor.NXInstrumentClassName, entry);
+		entry.addChildNode(instrument);
+		NexusTreeNode[] data = new NexusTreeNode[2];
+		for (int i = 0; i < data.length; i++) {
+			NexusTreeNode detector = new NexusTreeNode("detector" + i, NexusExtractor.NXDetectorClassName, instrument);
+			instrument.addChildNode(detector);
+			data[i] = new NexusTreeNode("data", NexusExtractor.SDSClassName, detector, new NexusGroupData(i));
+			detector.addChildNode(data[i]);
+		}
+
+		Assert.assertSame(data[1], top.getNode("entry1/instrument/detector1/data"));
+		Assert.assertSame(data[1], instrument.getNode("detector1/data"));
+		Assert.assertNull(top.getNode("entry1/instrument/detector2/data"));
+		Assert.assertSame(data[0], entry.getNodeWithClasses("instrument:NXinstrument/detector0:NXdetector/data:SDS"));
+		Assert.assertNull(entry.getNodeWithClasses("instrument:NXinstrument/detector0:NXdata"));
+		Assert.assertSame(data[0], top.findNode("data"));
+		Assert.assertSame(data[1], ((NexusTreeNode) instrument.getChildNode(1)).findNode("data"));
+		Assert.assertEquals(Arrays.asList(data), top.findNodes(NexusExtractor.NXDetectorClassName, "data"));
+		Assert.assertEquals(2, entry.findNodesOfClass(NexusExtractor.NXDetectorClassName).size());
+
+		// index follows changes to the tree
+		NexusTreeNode detector = (NexusTreeNode) data[1].getParentNode();
+		NexusTreeNode added = new NexusTreeNode("data", NexusExtractor.SDSClassName, instrument);
+		instrument.addChildNode(added);
+		instrument.removeChildNode(detector);
+		Assert.assertNull(top.getNode("entry1/instrument/detector1/data"));
+		Assert.assertSame(added, top.getNode("entry1/instrument/data"));
+		Assert.assertEquals(Arrays.asList(data[0]), top.findNodes(NexusExtractor.NXDetectorClassName, "data"));
+		Assert.assertSame(data[1], detector.findNode("data"));
+	}
+
+	@Test
+	public void testNodePaths() {
+		NexusTreeNode top = new NexusTreeNode("", "", null);
+		NexusTreeNode entry = new NexusTreeNode("entry1", NexusExtractor.NXEntryClassName, top);
+		top.addChildNode(entry);
+		NexusTreeNode data = new NexusTreeNode("data", NexusExtractor.NXDataClassName, entry);
+		entry.addChildNode(data);
+		NexusTreeNode x = new NexusTreeNode("x", NexusExtractor.SDSClassName, data);
+		data.addChildNode(x);
+
+		Assert.assertEquals("//entry1/data/x", x.getNodePath());
+		Assert.assertEquals("//entry1/NXentry/data/NXdata/x/SDS/", x.getNodePathWithClasses());
+		Assert.assertSame(x.getNodePath(), x.getNodePath());
+
+		// moving a group changes the paths of the nodes below it
+		NexusTreeNode other = new NexusTreeNode("entry2", NexusExtractor.NXEntryClassName, top);
+		top.addChildNode(other);
+		new NexusTreeSplicer().Splice(other, data);
+		Assert.assertEquals("//entry2/data/x", x.getNodePath());
+		Assert.assertEquals("//entry2/NXentry/data/NXdata/x/SDS/", x.getNodePathWithClasses());
+	}
+
+	@Test
+	public void testEquality() {
+		NexusTreeNode a = createGroup(50);
+		NexusTreeNode b = createGroup(50);
+		Assert.assertNotEquals(a, b);
+		Assert.assertTrue(a.structurallyEquals(b));
+		Assert.assertEquals(a.structuralHashCode(), b.structuralHashCode());
+
+		Set<INexusTree> nodes = new HashSet<>();
+		for (INexusTree t : Arrays.asList(a, b, a.getChildNode(0), b.getChildNode(0))) {
+			nodes.add(t);
+		}
+		Assert.assertEquals(4, nodes.size());
+
+		// the node given is removed rather than the first with the same content
+		INexusTree first = a.getChildNode(0);
+		INexusTree copy = new NexusTreeNode("item0", NexusExtractor.SDSClassName, a, new NexusGroupData(0));
+		a.addChildNode(copy);
+		a.removeChildNode(copy);
+		Assert.assertSame(first, a.getChildNode(0));
+		Assert.assertSame(a, first.getParentNode());
+		Assert.assertTrue(a.structurallyEquals(b));
+
+		((NexusTreeNode) b.getChildNode(1)).setIsPointDependent(true);
+		Assert.assertFalse(a.structurallyEquals(b));
+	}
+
+	@Test
+	public void testMerge() {
+		NexusTreeSplicer splicer = new NexusTreeSplicer();
+		NexusTreeNode a = createGroup(50);
+		NexusTreeNode b = createGroup(50);
+		INexusTree last = b.getChildNode(99);
+		splicer.MergeTwo(a, b);
+		Assert.assertEquals(0, b.getNumberOfChildNodes());
+		Assert.assertEquals(200, a.getNumberOfChildNodes());
+		Assert.assertSame(last, a.getChildNode(199));
+		Assert.assertSame(a, last.getParentNode());
+		Assert.assertEquals("item0", a.getChildNode(100).getName());
+
+		// groups with the same name and class are merged
+		NexusTreeNode scan = new NexusTreeNode("", "", null);
+		NexusTreeNode point = new NexusTreeNode("", "", null);
+		NexusTreeNode instrument = new NexusTreeNode("instrument", NexusExtractor.NXInstrumentClassName, scan);
+		scan.addChildNode(instrument);
+		instrument.addChildNode(createGroup(1));
+		NexusTreeNode pointInstrument = new NexusTreeNode("instrument", NexusExtractor.NXInstrumentClassName, point);
+		point.addChildNode(pointInstrument);
+		NexusTreeNode detector = new NexusTreeNode("detector", NexusExtractor.NXDetectorClassName, pointInstrument);
+		pointInstrument.addChildNode(detector);
+		NexusTreeNode entry = createGroup(1);
+		pointInstrument.addChildNode(entry);
+
+		splicer.Merge(scan, point, true);
+		Assert.assertEquals(1, scan.getNumberOfChildNodes());
+		Assert.assertSame(instrument, scan.getChildNode(0));
+		Assert.assertEquals(2, instrument.getNumberOfChildNodes());
+		Assert.assertSame(detector, instrument.getNode("detector"));
+		Assert.assertSame(instrument, detector.getParentNode());
+		// the two entry1 groups are merged, keeping the first
+		INexusTree merged = instrument.getChildNode(0);
+		Assert.assertNotSame(entry, merged);
+		Assert.assertEquals(4, merged.getNumberOfChildNodes());
+		Assert.assertSame(merged, merged.getChildNode(3).getParentNode());
+		Assert.assertEquals(0, entry.getNumberOfChildNodes());
+	}
+
+	@Test
+	public void testDeserializedLazyNodeIsLoaded() throws Exception {
+		// file does not exist so reading it would throw
+		LazyNexusTreeNode lazy = LazyNexusTreeNode.createTree("/does/not/exist.nxs", false);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(lazy);
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			INexusTree read = (INexusTree) ois.readObject();
+			Assert.assertEquals(0, read.getNumberOfChildNodes());
+			Assert.assertNull(read.getData());
+		}
+	}
+
+	@Test
+	public void testBuildingDoesNotIndexTree() {
+		int[] indexed = new int[1];
+		NexusTreeNode top = new NexusTreeNode("", "", null) {
+			@Override
+			protected boolean isTreeIndexed() {
+				indexed[0]++;
+				return true;
+			}
+		};
+		top.addChildNode(new NexusTreeNode("entry1", NexusExtractor.NXEntryClassName, top));
+		for (int i = 0; i < 20; i++) {
+			INexusTree entry = top.getNode("entry1");
+			entry.addChildNode(new NexusTreeNode("detector" + i, NexusExtractor.NXDetectorClassName, entry));
+			Assert.assertNotNull(top.getNodeWithClasses("entry1:NXentry/detector" + i + ":NXdetector"));
+		}
+		Assert.assertEquals(0, indexed[0]);
+		Assert.assertSame(top.getNode("entry1/detector7"), top.findNode("detector7"));
+		Assert.assertEquals(1, indexed[0]);
+		// paths now use the index of the tree
+		Assert.assertNotNull(top.getNode("entry1/detector19"));
+		Assert.assertEquals(1, indexed[0]);
+	}
+}
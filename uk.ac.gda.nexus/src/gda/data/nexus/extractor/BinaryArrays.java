@@ -0,0 +1,303 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary form of the data held by a NexusGroupData. Arrays of numbers are written as little-endian bytes a block at a
+ * time, straight from their buffer if held off heap, and can be compressed with deflate. Arrays of strings are
+ * written as UTF-8, and anything else, e.g. multi-dimensional arrays, with Java serialization. Only arrays of
+ * primitives and strings are read back from Java serialization, so that reading a stream cannot make other objects.
+ */
+final class BinaryArrays {
+
+	private static final int NULL = 0;
+	/**
+	 * Tags of arrays of byte, short, int, long, float and double, in order
+	 */
+	private static final int PRIMITIVE = 1;
+	private static final Class<?>[] PRIMITIVE_TYPES = { byte.class, short.class, int.class, long.class, float.class,
+			double.class };
+	private static final int STRINGS = 7;
+	private static final int OBJECT = 8;
+
+	private static final int RAW = 0;
+	private static final int DEFLATED = 1;
+
+	/**
+	 * Size in bytes of arrays below which they are not compressed
+	 */
+	private static final int DEFLATE_THRESHOLD = 1024;
+
+	private static final int BLOCK_BYTES = 64 * 1024;
+
+	/**
+	 * Accepts arrays, of any rank, of primitives and strings
+	 */
+	private static final ObjectInputFilter ARRAYS_ONLY = info -> {
+		Class<?> c = info.serialClass();
+		if (c == null) {
+			return ObjectInputFilter.Status.UNDECIDED;
+		}
+		if (!c.isArray()) {
+			return ObjectInputFilter.Status.REJECTED;
+		}
+		while (c.isArray()) {
+			c = c.getComponentType();
+		}
+		return c.isPrimitive() || c == String.class ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+	};
+
+	private BinaryArrays() {
+	}
+
+	/**
+	 * @param out
+	 * @param data
+	 *            array, OffHeapBuffer or null
+	 * @param deflate
+	 *            if true compress arrays of numbers where that makes them smaller
+	 * @throws IOException
+	 */
+	static void write(DataOutputStream out, Serializable data, boolean deflate) throws IOException {
+		if (data == null) {
+			out.writeByte(NULL);
+			return;
+		}
+		Buffer values = null;
+		Class<?> type = null;
+		if (data instanceof OffHeapBuffer) {
+			values = ((OffHeapBuffer) data).values();
+			type = ((OffHeapBuffer) data).getType();
+		} else if (data.getClass().getComponentType() != null) {
+			type = data.getClass().getComponentType();
+			values = wrap(data, type);
+		}
+		if (values != null) {
+			out.writeByte(PRIMITIVE + indexOf(type));
+			writeValues(out, values, type, deflate);
+		} else if (data instanceof String[]) {
+			String[] strings = (String[]) data;
+			out.writeByte(STRINGS);
+			out.writeInt(strings.length);
+			for (String s : strings) {
+				if (s == null) {
+					out.writeInt(-1);
+				} else {
+					byte[] b = s.getBytes(StandardCharsets.UTF_8);
+					out.writeInt(b.length);
+					out.write(b);
+				}
+			}
+		} else {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(data);
+			}
+			out.writeByte(OBJECT);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		}
+	}
+
+	/**
+	 * @param in
+	 * @return data as written by {@link #write}, with arrays of numbers on the heap
+	 * @throws IOException
+	 *             also if the data is not an array of primitives or strings
+	 */
+	static Serializable read(DataInputStream in) throws IOException {
+		int tag = in.readUnsignedByte();
+		if (tag == NULL) {
+			return null;
+		} else if (tag < STRINGS) {
+			return readValues(in, PRIMITIVE_TYPES[tag - PRIMITIVE]);
+		} else if (tag == STRINGS) {
+			String[] strings = new String[in.readInt()];
+			for (int i = 0; i < strings.length; i++) {
+				int n = in.readInt();
+				if (n >= 0) {
+					byte[] b = new byte[n];
+					in.readFully(b);
+					strings[i] = new String(b, StandardCharsets.UTF_8);
+				}
+			}
+			return strings;
+		} else if (tag == OBJECT) {
+			byte[] b = new byte[in.readInt()];
+			in.readFully(b);
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(b))) {
+				ois.setObjectInputFilter(ARRAYS_ONLY);
+				return (Serializable) ois.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Could not read data", e);
+			}
+		}
+		throw new StreamCorruptedException("Unknown data tag " + tag);
+	}
+
+	private static int indexOf(Class<?> type) {
+		for (int i = 0; i < PRIMITIVE_TYPES.length; i++) {
+			if (PRIMITIVE_TYPES[i] == type) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported type " + type);
+	}
+
+	/**
+	 * @return array as a buffer of its type or null if it is not an array of a type written as numbers
+	 */
+	private static Buffer wrap(Serializable array, Class<?> type) {
+		if (type == byte.class) {
+			return ByteBuffer.wrap((byte[]) array);
+		} else if (type == short.class) {
+			return ShortBuffer.wrap((short[]) array);
+		} else if (type == int.class) {
+			return IntBuffer.wrap((int[]) array);
+		} else if (type == long.class) {
+			return LongBuffer.wrap((long[]) array);
+		} else if (type == float.class) {
+			return FloatBuffer.wrap((float[]) array);
+		} else if (type == double.class) {
+			return DoubleBuffer.wrap((double[]) array);
+		}
+		return null;
+	}
+
+	private static void writeValues(DataOutputStream out, Buffer values, Class<?> type, boolean deflate)
+			throws IOException {
+		int length = values.remaining();
+		out.writeInt(length);
+		long bytes = (long) length * OffHeapBuffer.itemBytes(type);
+		if (deflate && bytes >= DEFLATE_THRESHOLD) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (DataOutputStream dos = new DataOutputStream(new DeflaterOutputStream(compressed))) {
+				copy(values.duplicate(), type, dos);
+			}
+			if (compressed.size() < bytes) {
+				out.writeByte(DEFLATED);
+				out.writeInt(compressed.size());
+				compressed.writeTo(out);
+				return;
+			}
+		}
+		out.writeByte(RAW);
+		copy(values, type, out);
+	}
+
+	/**
+	 * Write values as little-endian bytes a block at a time
+	 */
+	private static void copy(Buffer values, Class<?> type, DataOutputStream out) throws IOException {
+		int item = OffHeapBuffer.itemBytes(type);
+		byte[] block = new byte[(int) Math.max(Math.min(BLOCK_BYTES, (long) values.remaining() * item), item)];
+		ByteBuffer b = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+		int perBlock = block.length / item;
+		while (values.hasRemaining()) {
+			int n = Math.min(values.remaining(), perBlock);
+			Buffer part = values.duplicate().limit(values.position() + n);
+			b.clear();
+			if (type == byte.class) {
+				b.put((ByteBuffer) part);
+			} else if (type == short.class) {
+				b.asShortBuffer().put((ShortBuffer) part);
+			} else if (type == int.class) {
+				b.asIntBuffer().put((IntBuffer) part);
+			} else if (type == long.class) {
+				b.asLongBuffer().put((LongBuffer) part);
+			} else if (type == float.class) {
+				b.asFloatBuffer().put((FloatBuffer) part);
+			} else {
+				b.asDoubleBuffer().put((DoubleBuffer) part);
+			}
+			out.write(block, 0, n * item);
+			values.position(values.position() + n);
+		}
+	}
+
+	private static Serializable readValues(DataInputStream in, Class<?> type) throws IOException {
+		int length = in.readInt();
+		Serializable array = (Serializable) Array.newInstance(type, length);
+		int encoding = in.readUnsignedByte();
+		if (encoding == DEFLATED) {
+			byte[] compressed = new byte[in.readInt()];
+			in.readFully(compressed);
+			try (DataInputStream inflated = new DataInputStream(
+					new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+				copy(inflated, type, wrap(array, type));
+			}
+		} else if (encoding == RAW) {
+			copy(in, type, wrap(array, type));
+		} else {
+			throw new StreamCorruptedException("Unknown encoding " + encoding);
+		}
+		return array;
+	}
+
+	/**
+	 * Read little-endian bytes a block at a time into values
+	 */
+	private static void copy(DataInputStream in, Class<?> type, Buffer values) throws IOException {
+		int item = OffHeapBuffer.itemBytes(type);
+		byte[] block = new byte[(int) Math.max(Math.min(BLOCK_BYTES, (long) values.remaining() * item), item)];
+		ByteBuffer b = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+		int perBlock = block.length / item;
+		while (values.hasRemaining()) {
+			int n = Math.min(values.remaining(), perBlock);
+			in.readFully(block, 0, n * item);
+			b.clear().limit(n * item);
+			if (type == byte.class) {
+				((ByteBuffer) values).put(b);
+			} else if (type == short.class) {
+				((ShortBuffer) values).put(b.asShortBuffer());
+			} else if (type == int.class) {
+				((IntBuffer) values).put(b.asIntBuffer());
+			} else if (type == long.class) {
+				((LongBuffer) values).put(b.asLongBuffer());
+			} else if (type == float.class) {
+				((FloatBuffer) values).put(b.asFloatBuffer());
+			} else {
+				((DoubleBuffer) values).put(b.asDoubleBuffer());
+			}
+		}
+	}
+}
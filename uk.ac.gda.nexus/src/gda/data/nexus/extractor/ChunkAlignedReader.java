@@ -0,0 +1,127 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.net.URL;
+
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.january.dataset.ShapeUtils;
+
+/**
+ * Reads slabs of chunked datasets by reading the smallest slab made of whole chunks that holds the slab wanted, the
+ * super-slab, into a cache and taking the slab from it. A run of small slabs within the same chunks, e.g. rows of an
+ * image read one at a time, then decompresses each chunk once rather than once per slab.
+ * <p>
+ * Super-slabs are only read when they fit in the cache.
+ */
+final class ChunkAlignedReader {
+
+	/**
+	 * Reads a slab of a dataset
+	 */
+	interface SlabReader {
+		/**
+		 * @param start
+		 * @param stop
+		 * @return slab
+		 * @throws NexusException
+		 */
+		NexusGroupData read(int[] start, int[] stop) throws NexusException;
+	}
+
+	private ChunkAlignedReader() {
+	}
+
+	/**
+	 * @param start
+	 *            of slab
+	 * @param stop
+	 *            of slab
+	 * @param shape
+	 *            of dataset
+	 * @param chunks
+	 *            shape of chunks of dataset
+	 * @return start and stop of super-slab, or null if the chunks do not fit the dataset
+	 */
+	static int[][] align(int[] start, int[] stop, int[] shape, int[] chunks) {
+		int rank = shape.length;
+		if (chunks == null || chunks.length != rank || start.length != rank || stop.length != rank) {
+			return null;
+		}
+		int[] alignedStart = new int[rank];
+		int[] alignedStop = new int[rank];
+		for (int i = 0; i < rank; i++) {
+			int c = chunks[i];
+			if (c < 1) {
+				return null;
+			}
+			alignedStart[i] = start[i] / c * c;
+			alignedStop[i] = (int) Math.min(((long) stop[i] + c - 1) / c * c, shape[i]);
+		}
+		return new int[][] { alignedStart, alignedStop };
+	}
+
+	/**
+	 * Read a slab through its super-slab, or directly if the super-slab would not fit in the cache
+	 *
+	 * @param cache
+	 *            of super-slabs
+	 * @param source
+	 *            of dataset
+	 * @param nodePathWithClasses
+	 *            of dataset
+	 * @param shape
+	 *            of dataset
+	 * @param chunks
+	 *            shape of chunks of dataset, or null if not chunked
+	 * @param itemBytes
+	 *            number of bytes in each item
+	 * @param start
+	 *            of slab
+	 * @param stop
+	 *            of slab
+	 * @param reader
+	 *            reads slabs from the file
+	 * @return slab
+	 * @throws NexusException
+	 */
+	static NexusGroupData read(NexusGroupDataCache cache, URL source, String nodePathWithClasses, int[] shape,
+			int[] chunks, int itemBytes, int[] start, int[] stop, SlabReader reader) throws NexusException {
+		int[][] aligned = align(start, stop, shape, chunks);
+		if (aligned == null) {
+			return reader.read(start, stop);
+		}
+		int[] alignedStart = aligned[0];
+		int[] alignedStop = aligned[1];
+		int[] alignedDims = new int[shape.length];
+		int[] from = new int[shape.length];
+		int[] to = new int[shape.length];
+		for (int i = 0; i < shape.length; i++) {
+			alignedDims[i] = alignedStop[i] - alignedStart[i];
+			from[i] = start[i] - alignedStart[i];
+			to[i] = stop[i] - alignedStart[i];
+		}
+		if (ShapeUtils.calcLongSize(alignedDims) * itemBytes > cache.getMaxBytes()) {
+			return reader.read(start, stop);
+		}
+		NexusGroupData superSlab = cache.get(source, nodePathWithClasses, alignedStart, alignedDims,
+				() -> reader.read(alignedStart, alignedStop));
+		return superSlab.getSlice(from, to);
+	}
+}
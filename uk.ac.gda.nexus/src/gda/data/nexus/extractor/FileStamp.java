@@ -0,0 +1,85 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Modification time and size of a file at the time it was examined. Used to detect that a file has changed
+ * since something derived from it was cached.
+ */
+final class FileStamp {
+
+	/**
+	 * Stamp used for files that do not exist or cannot be examined
+	 */
+	static final FileStamp MISSING = new FileStamp(-1, -1);
+
+	final long modified;
+	final long size;
+
+	private FileStamp(long modified, long size) {
+		this.modified = modified;
+		this.size = size;
+	}
+
+	/**
+	 * @param path
+	 * @return current stamp of file at path or {@link #MISSING}
+	 */
+	static FileStamp of(String path) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+			return new FileStamp(attrs.lastModifiedTime().toMillis(), attrs.size());
+		} catch (IOException | RuntimeException e) {
+			return MISSING;
+		}
+	}
+
+	/**
+	 * @param path
+	 * @return true if file at path still has this stamp
+	 */
+	boolean isCurrent(String path) {
+		return this != MISSING && equals(of(path));
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(modified) + Long.hashCode(size);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof FileStamp))
+			return false;
+		FileStamp other = (FileStamp) obj;
+		return modified == other.modified && size == other.size;
+	}
+
+	@Override
+	public String toString() {
+		return "modified=" + modified + ", size=" + size;
+	}
+}
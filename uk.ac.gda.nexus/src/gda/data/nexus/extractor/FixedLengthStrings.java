@@ -0,0 +1,149 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strings encoded as UTF-8 in a byte array with a fixed number of bytes per string. A string shorter than its
+ * width is ended by a zero byte, a longer one is cut at the last whole character that fits.
+ * <p>
+ * Strings are encoded straight into the array, ASCII characters without an encoder and others with one encoder per
+ * thread, and are measured without encoding them.
+ */
+final class FixedLengthStrings {
+
+	private static final ThreadLocal<CharsetEncoder> encoders = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8
+			.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+	private FixedLengthStrings() {
+	}
+
+	/**
+	 * @param s
+	 * @return number of bytes in the UTF-8 encoding of the string, as given by String.getBytes
+	 */
+	static int encodedLength(String s) {
+		int n = s.length();
+		int bytes = n;
+		for (int i = 0; i < n; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					bytes++;
+				} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+					// a pair of chars encodes to four bytes
+					bytes += 2;
+					i++;
+				} else if (Character.isSurrogate(c)) {
+					// replaced by '?'
+				} else {
+					bytes += 2;
+				}
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param text
+	 * @return greatest encoded length of the strings that are not null, -1 if there are none
+	 */
+	static int maxEncodedLength(String[] text) {
+		int max = -1;
+		for (String t : text) {
+			if (t != null) {
+				max = Math.max(max, encodedLength(t));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @param text
+	 * @param width
+	 *            number of bytes for each string, or less than 1 for the greatest encoded length
+	 * @return encoded strings, with null strings left as zeros
+	 */
+	static byte[] encode(String[] text, int width) {
+		if (width <= 0) {
+			width = Math.max(maxEncodedLength(text), 0);
+		}
+		byte[] bytes = new byte[text.length * width];
+		CharsetEncoder encoder = null;
+		int k = 0;
+		for (String t : text) {
+			if (t != null) {
+				int n = t.length();
+				int end = Math.min(n, width);
+				int i = 0;
+				for (; i < end; i++) {
+					char c = t.charAt(i);
+					if (c >= 0x80) {
+						break;
+					}
+					bytes[k + i] = (byte) c;
+				}
+				if (i < n && i < width) {
+					if (encoder == null) {
+						encoder = encoders.get();
+					}
+					encoder.reset();
+					ByteBuffer out = ByteBuffer.wrap(bytes, k + i, width - i);
+					// output is full when the next character does not fit so the string is cut at a whole character
+					encoder.encode(CharBuffer.wrap(t, i, n), out, true);
+					encoder.flush(out);
+				}
+			}
+			k += width;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param bytes
+	 * @param offset
+	 *            of string
+	 * @param width
+	 *            number of bytes for the string
+	 * @return string up to its first zero byte
+	 */
+	static String decode(byte[] bytes, int offset, int width) {
+		int stop = Math.min(offset + width, bytes.length);
+		int end = offset;
+		while (end < stop && bytes[end] != 0) {
+			end++;
+		}
+		return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param bytes
+	 * @param width
+	 *            number of bytes for each string, or less than 1 for one string filling the array
+	 * @return number of strings
+	 */
+	static int count(byte[] bytes, int width) {
+		return width <= 0 ? 1 : bytes.length / width;
+	}
+}
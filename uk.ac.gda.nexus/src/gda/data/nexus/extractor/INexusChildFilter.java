@@ -0,0 +1,44 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+/**
+ * Tells the extractor which children of an element an INexusTreeProcessor might want, so that children that cannot be
+ * wanted are neither read nor passed to beginElement. Tests may answer true for children that are then skipped by
+ * beginElement but must never answer false for a child that would be wanted.
+ *
+ * @see INexusTreeProcessor#getChildFilter()
+ */
+public interface INexusChildFilter {
+
+	/**
+	 * Test a child before its class is read
+	 *
+	 * @param name
+	 * @return false if no child with this name can be wanted whatever its class
+	 */
+	public boolean mayMatchName(String name);
+
+	/**
+	 * @param name
+	 * @param nxClass
+	 * @return false if the child cannot be wanted
+	 */
+	public boolean mayMatch(String name, String nxClass);
+}
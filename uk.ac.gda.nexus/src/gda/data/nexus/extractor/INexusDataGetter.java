@@ -20,6 +20,7 @@ package gda.data.nexus.extractor;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Map;
 
 import org.eclipse.dawnsci.nexus.NexusException;
 
@@ -45,6 +46,18 @@ public interface INexusDataGetter {
 	 * @throws NexusExtractorException 
 	 */
 	public NexusGroupData getAttributeOfCurrentProcessedGroup(String attrName)throws NexusException, NexusExtractorException;
+
+	/**
+	 * Get all the attributes at once, rather than calling getAttributeOfCurrentProcessedGroup for each
+	 *
+	 * @return values of the attributes of the current SDS by name, in the order held in the file, or null if they
+	 *         cannot be read together, in which case the processor should ask for them with SDS_ATTR
+	 * @throws NexusException
+	 * @throws NexusExtractorException
+	 */
+	default Map<String, NexusGroupData> getAttributesOfCurrentProcessedGroup() throws NexusException, NexusExtractorException {
+		return null;
+	}
 	
 	
 	/**
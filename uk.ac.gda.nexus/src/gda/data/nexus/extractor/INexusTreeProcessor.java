@@ -62,4 +62,13 @@ public interface INexusTreeProcessor {
 	 * 
 	 */
 	public void endElement();
+
+	/**
+	 * Called after beginElement has returned GO_INTO or SDS_ATTR, before the children of the element are read
+	 *
+	 * @return filter for the children of the element or null if any of them might be wanted
+	 */
+	public default INexusChildFilter getChildFilter() {
+		return null;
+	}
 }
@@ -0,0 +1,51 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+/**
+ * An INexusTreeProcessor whose work on the children of the top element can be split between threads by
+ * {@link NexusExtractor#runLoopParallel}.
+ * <p>
+ * The contract is:
+ * <ul>
+ * <li>{@link #fork()} is called on the thread running the loop after beginElement for the top element has returned
+ * GO_INTO. It returns a new processor that will be passed a consecutive run of the top element's children</li>
+ * <li>a forked processor is only used by one thread at a time, and it receives beginElement and endElement calls for its
+ * children exactly as this processor would in the sequential loop, starting at the level of the top element's
+ * children</li>
+ * <li>{@link #join(IParallelNexusTreeProcessor)} is called on the thread running the loop, once for each forked
+ * processor in the order of the children in the file, after the forked processor has finished and before the
+ * attributes of the top element are passed to this processor</li>
+ * <li>any state shared between this processor and its forks must be thread safe</li>
+ * </ul>
+ */
+public interface IParallelNexusTreeProcessor extends INexusTreeProcessor {
+
+	/**
+	 * @return processor for a run of the children of the top element
+	 */
+	public IParallelNexusTreeProcessor fork();
+
+	/**
+	 * Merge the results of a processor returned by {@link #fork()}
+	 *
+	 * @param subtreeProcessor
+	 */
+	public void join(IParallelNexusTreeProcessor subtreeProcessor);
+}
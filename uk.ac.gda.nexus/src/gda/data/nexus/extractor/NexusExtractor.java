@@ -20,7 +20,19 @@ package gda.data.nexus.extractor;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.eclipse.dawnsci.analysis.api.tree.Attribute;
 import org.eclipse.dawnsci.analysis.api.tree.DataNode;
@@ -35,6 +47,7 @@ import org.eclipse.dawnsci.nexus.NexusFile;
 import org.eclipse.january.DatasetException;
 import org.eclipse.january.IMonitor;
 import org.eclipse.january.dataset.ILazyDataset;
+import org.eclipse.january.dataset.InterfaceUtils;
 import org.eclipse.january.dataset.SliceND;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,8 +85,31 @@ public final class NexusExtractor implements INexusDataGetter {
 
 	final String fileName;
 
+	private final NexusFileCache fileCache;
+
 	private INexusTreeProcessor loopProcessor;
 
+	/**
+	 * System property which, if false, stops data being shared between the links to a dataset (default true)
+	 */
+	public static final String SHARE_LINKED_DATA_PROPERTY = "gda.nexus.extractor.shareLinkedData";
+
+	/**
+	 * @return true if data is shared between the links to a dataset, read at the start of each loop
+	 */
+	static boolean isShareLinkedData() {
+		return Boolean.parseBoolean(System.getProperty(SHARE_LINKED_DATA_PROPERTY, "true"));
+	}
+
+	/**
+	 * Data read in the current loop by the object in the file it came from, so that a dataset reached by more than one
+	 * link, whether hard, soft or with a target attribute, is read once. Shared with the runs of a parallel loop.
+	 * <p>
+	 * The ID of an object is only unique within the file holding it, so datasets reached through an external link,
+	 * whose IDs are those of another file, are not held
+	 */
+	private Map<ObjectKey, NexusGroupData> dataByObject;
+
 	/**
 	 * @param dimensions
 	 *            should use calcTotalLengthLong as total size may be too big for int
@@ -99,7 +135,17 @@ public final class NexusExtractor implements INexusDataGetter {
 	 * @param fileName
 	 */
 	public NexusExtractor(String fileName) {
+		this(fileName, NexusFileCache.getInstance());
+	}
+
+	/**
+	 * @param fileName
+	 * @param fileCache
+	 *            through which the file is read by the loops
+	 */
+	NexusExtractor(String fileName, NexusFileCache fileCache) {
 		this.fileName = fileName;
+		this.fileCache = fileCache;
 	}
 
 	/**
@@ -113,18 +159,55 @@ public final class NexusExtractor implements INexusDataGetter {
 	public NexusGroupData getAttributeOfCurrentProcessedGroup(String attrName) throws NexusException,
 			NexusExtractorException {
 		NexusGroupData val = null;
-		// try to open the attribute
-		DataNode d = file.getData((GroupNode) currentGroupBeingProcessed.parent, currentGroupBeingProcessed.name);
-		Attribute a = d.getAttribute(attrName);
+		Attribute a = getAttributes(currentGroupBeingProcessed).get(attrName);
 		if (a != null) {
 			Group currentGroupBeingProcessed_tmp = currentGroupBeingProcessed;
-			currentGroupBeingProcessed = new Attr(d, attrName, a);
+			currentGroupBeingProcessed = new Attr(currentGroupBeingProcessed.dataNode, attrName, a);
 			val = NexusGroupData.createFromDataset(a.getValue());
 			currentGroupBeingProcessed = currentGroupBeingProcessed_tmp;
 		}
 		return val;
 	}
 
+	@Override
+	public Map<String, NexusGroupData> getAttributesOfCurrentProcessedGroup() throws NexusException,
+			NexusExtractorException {
+		if (currentGroupBeingProcessed == null) {
+			throw new NexusExtractorException("getAttributesOfCurrentProcessedGroup being called out of sequence");
+		}
+		Map<String, NexusGroupData> values = new LinkedHashMap<>();
+		for (Attribute a : getAttributes(currentGroupBeingProcessed).values()) {
+			values.put(a.getName(), NexusGroupData.createFromDataset(a.getValue()));
+		}
+		return values;
+	}
+
+	/**
+	 * @return data node of an SDS, looked up in the file once per visit to it
+	 */
+	private DataNode getDataNode(Group group) throws NexusException {
+		if (group.dataNode == null) {
+			group.dataNode = file.getData((GroupNode) group.parent, group.name);
+		}
+		return group.dataNode;
+	}
+
+	/**
+	 * @return attributes of an SDS by name, read from the file once per visit to it
+	 */
+	private Map<String, Attribute> getAttributes(Group group) throws NexusException {
+		if (group.attributes == null) {
+			Map<String, Attribute> attributes = new LinkedHashMap<>();
+			Iterator<? extends Attribute> it = getDataNode(group).getAttributeIterator();
+			while (it.hasNext()) {
+				Attribute a = it.next();
+				attributes.put(a.getName(), a);
+			}
+			group.attributes = attributes;
+		}
+		return group.attributes;
+	}
+
 	/**
 	 * @param name
 	 * @param nxClass
@@ -144,7 +227,66 @@ public final class NexusExtractor implements INexusDataGetter {
 			Attribute a = ((Attr) currentGroupBeingProcessed).entry;
 			return NexusGroupData.createFromDataset(a.getValue());
 		}
-		DataNode d = file.getData((GroupNode) currentGroupBeingProcessed.parent, name);
+		DataNode d = getDataNode(currentGroupBeingProcessed);
+		if (dataByObject == null || d.getID() <= 0 || currentGroupBeingProcessed.external) {
+			return createNexusGroupData(d, getData);
+		}
+		ILazyDataset l = d.getDataset();
+		ObjectKey key = new ObjectKey(d.getID(), l.getShape(), l.getElementClass(), getData);
+		NexusGroupData data = dataByObject.get(key);
+		if (data == null) {
+			data = createNexusGroupData(d, getData);
+			NexusGroupData read = dataByObject.putIfAbsent(key, data);
+			if (read != null) {
+				data = read;
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Identity of a dataset in a file, with the shape and type read to guard against objects given the same ID
+	 */
+	private static final class ObjectKey {
+		private final long id;
+		private final int[] shape;
+		private final Class<?> elementClass;
+		private final boolean getData;
+
+		ObjectKey(long id, int[] shape, Class<?> elementClass, boolean getData) {
+			this.id = id;
+			this.shape = shape;
+			this.elementClass = elementClass;
+			this.getData = getData;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(id) * 31 + Arrays.hashCode(shape);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ObjectKey)) {
+				return false;
+			}
+			ObjectKey other = (ObjectKey) obj;
+			return id == other.id && getData == other.getData && Arrays.equals(shape, other.shape)
+					&& Objects.equals(elementClass, other.elementClass);
+		}
+	}
+
+	/**
+	 * @param d
+	 * @param getData
+	 *            if false only the shape and type are read
+	 * @return data of node
+	 * @throws NexusException
+	 */
+	public static NexusGroupData createNexusGroupData(DataNode d, boolean getData) throws NexusException {
 		ILazyDataset l = d.getDataset();
 		int[] shape = l.getShape();
 		NexusGroupData n;
@@ -163,6 +305,19 @@ public final class NexusExtractor implements INexusDataGetter {
 		return n;
 	}
 
+	/**
+	 * @param link
+	 * @return NX_class of the destination of the link, SDS for a dataset without one or empty if none
+	 */
+	public static String getNXclass(NodeLink link) {
+		Attribute a = link.getDestination().getAttribute(NexusConstants.NXCLASS);
+		String nc = a == null ? "" : a.getFirstElement();
+		if (nc.isEmpty() && link.isDestinationData()) {
+			nc = SDSClassName;
+		}
+		return nc;
+	}
+
 	private boolean isRequestedClass(String requestedClassName) {
 		return requestedClassName.equals(currentGroupBeingProcessed.NXclass) ||
 				(requestedClassName.equals(SDSClassName) && currentGroupBeingProcessed.getNXclass().isEmpty() && currentGroupBeingProcessed.parent != null);
@@ -199,10 +354,13 @@ public final class NexusExtractor implements INexusDataGetter {
 					// SDS element is open so now iterate over attributes and then send endElement
 					// The processor does not allow the attribute to be a parent so simply send endElement after all
 					// have been processed
-					DataNode d = file.getData((GroupNode) group.parent, group.name);
-					Iterator<? extends Attribute> it = d.getAttributeIterator();
-					while (it.hasNext()) {
-						Attribute a = it.next();
+					// the node and its attributes are those already read if beginElement asked for them
+					DataNode d = getDataNode(group);
+					INexusChildFilter filter = loopProcessor.getChildFilter();
+					for (Attribute a : getAttributes(group).values()) {
+						if (filter != null && !filter.mayMatch(a.getName(), AttrClassName)) {
+							continue;
+						}
 						RESPONSE response2 = loop(new Attr(d, a.getName(), a), mon);
 						if (response2 == RESPONSE.NO_MORE) {
 							response = RESPONSE.NO_MORE;
@@ -218,6 +376,7 @@ public final class NexusExtractor implements INexusDataGetter {
 				return RESPONSE.SKIP_OVER;
 			}
 		}
+		INexusChildFilter filter = loopProcessor.getChildFilter();
 		GroupNode c;
 		if (group.name.equals(topName) && group.NXclass.equals(topClass)) {
 			c = file.getGroup(Tree.ROOT, false);
@@ -229,31 +388,18 @@ public final class NexusExtractor implements INexusDataGetter {
 			// invalid type exception
 			Iterator<String> it = c.getNodeNameIterator();
 			while (it.hasNext()) {
-				String n = it.next();
-				NodeLink l = c.getNodeLink(n);
-				Node nn = l.getDestination();
-				Attribute a = nn.getAttribute(NexusConstants.NXCLASS);
-				String nc = a == null ? "" : a.getFirstElement();
-				if (nc.isEmpty() && l.isDestinationData()) {
-					nc = SDSClassName;
+				Group child = createChild(c, group.external, it.next(), filter);
+				if (child == null) {
+					continue;
 				}
-				RESPONSE response2 = loop(new Group(c, n, nc), mon);
+				RESPONSE response2 = loop(child, mon);
 				if (response2 == RESPONSE.NO_MORE) {
 					response = RESPONSE.NO_MORE;
 					break;
 				}
 			}
-			Iterator<? extends Attribute> ait = c.getAttributeIterator();
-			while (ait.hasNext()) {
-				Attribute a = ait.next();
-				if (NexusConstants.NXCLASS.equals(a.getName()))
-						continue; // skip NX_class
-
-				RESPONSE response2 = loop(new Attr(c, a.getName(), a), mon);
-				if (response2 == RESPONSE.NO_MORE) {
-					response = RESPONSE.NO_MORE;
-					break;
-				}
+			if (loopAttributes(c, filter, mon) == RESPONSE.NO_MORE) {
+				response = RESPONSE.NO_MORE;
 			}
 		} catch (NexusException e) {
 			logger.info(e.getMessage() + " " + group.toString());
@@ -269,6 +415,40 @@ public final class NexusExtractor implements INexusDataGetter {
 		return response;
 	}
 
+	/**
+	 * @param external
+	 *            true if c was reached through an external link
+	 * @return child or null if filtered out, in which case its class is only read if the filter needs it
+	 */
+	private static Group createChild(GroupNode c, boolean external, String n, INexusChildFilter filter) {
+		if (filter != null && !filter.mayMatchName(n)) {
+			return null;
+		}
+		NodeLink link = c.getNodeLink(n);
+		Group child = new Group(c, n, getNXclass(link), external || link.isDestinationSymbolic());
+		if (filter != null && !filter.mayMatch(child.name, child.NXclass)) {
+			return null;
+		}
+		return child;
+	}
+
+	private RESPONSE loopAttributes(GroupNode c, INexusChildFilter filter, final IMonitor mon) throws NexusException, NexusExtractorException {
+		Iterator<? extends Attribute> ait = c.getAttributeIterator();
+		while (ait.hasNext()) {
+			Attribute a = ait.next();
+			if (NexusConstants.NXCLASS.equals(a.getName()))
+					continue; // skip NX_class
+			if (filter != null && !filter.mayMatch(a.getName(), AttrClassName))
+				continue;
+
+			RESPONSE response2 = loop(new Attr(c, a.getName(), a), mon);
+			if (response2 == RESPONSE.NO_MORE) {
+				return RESPONSE.NO_MORE;
+			}
+		}
+		return RESPONSE.GO_INTO;
+	}
+
 	/**
 	 * @param loopProcessor
 	 * @param debug
@@ -282,6 +462,9 @@ public final class NexusExtractor implements INexusDataGetter {
 	}
 
 	/**
+	 * The file is read through the shared {@link NexusFileCache} and its handle is locked for the duration of the loop,
+	 * so loops over different files can run concurrently.
+	 *
 	 * @param loopProcessor
 	 * @param debug
 	 *            - if true the file access is instrumented
@@ -292,14 +475,154 @@ public final class NexusExtractor implements INexusDataGetter {
 	public void runLoop(INexusTreeProcessor loopProcessor, boolean debug, final IMonitor mon) throws NexusException,
 			NexusExtractorException {
 		this.loopProcessor = loopProcessor;
-		try {
-			file = NexusFileHDF5.openNexusFileReadOnly(fileName);
+		try (NexusFileCache.Handle handle = fileCache.acquire(fileName)) {
+			handle.lock();
+			try {
+				file = handle.getFile();
+				file.setDebug(debug);
+				dataByObject = isShareLinkedData() ? new HashMap<>() : null;
+				loop(new Group(null, topName, topClass), mon);
+			} finally {
+				handle.unlock();
+				file = null;
+				currentGroupBeingProcessed = null;
+				dataByObject = null;
+			}
+		}
+	}
+
+	/**
+	 * System property for the number of threads used by {@link #runLoopParallel}
+	 */
+	public static final String PARALLELISM_PROPERTY = "gda.nexus.extractor.parallelism";
+
+	private static ForkJoinPool pool;
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors())));
+		}
+		return pool;
+	}
+
+	/**
+	 * As {@link #runLoop(INexusTreeProcessor, boolean, IMonitor)} but the children of the top element (typically the
+	 * NXentry groups) are split into consecutive runs which are processed in parallel on a fork-join pool of
+	 * {@value #PARALLELISM_PROPERTY} threads (default the number of processors). Each run is read through its own
+	 * handle on the file by a processor obtained from {@link IParallelNexusTreeProcessor#fork()} and the results are
+	 * joined in file order.
+	 * <p>
+	 * If a run is stopped with NO_MORE, runs already started still complete but those after it are not joined.
+	 *
+	 * @param loopProcessor
+	 * @param debug
+	 *            - if true the file access is instrumented
+	 * @param mon
+	 * @throws NexusException
+	 * @throws NexusExtractorException
+	 */
+	public void runLoopParallel(IParallelNexusTreeProcessor loopProcessor, boolean debug, final IMonitor mon)
+			throws NexusException, NexusExtractorException {
+		this.loopProcessor = loopProcessor;
+		try (NexusFileCache.Handle handle = fileCache.acquire(fileName)) {
+			handle.lock();
+			try {
+				file = handle.getFile();
+				file.setDebug(debug);
+				dataByObject = isShareLinkedData() ? new ConcurrentHashMap<>() : null;
+				if (mon != null && mon.isCancelled()) {
+					return;
+				}
+				Group top = new Group(null, topName, topClass);
+				currentGroupBeingProcessed = top;
+				RESPONSE response = loopProcessor.beginElement(top.name, top.NXclass, this);
+				currentGroupBeingProcessed = null;
+				if (response != RESPONSE.GO_INTO) {
+					return;
+				}
+				INexusChildFilter filter = loopProcessor.getChildFilter();
+				GroupNode c = file.getGroup(Tree.ROOT, false);
+				List<Group> children = new ArrayList<>();
+				Iterator<String> it = c.getNodeNameIterator();
+				while (it.hasNext()) {
+					Group child = createChild(c, false, it.next(), filter);
+					if (child != null) {
+						children.add(child);
+					}
+				}
+				loopChildrenInParallel(loopProcessor, children, debug, mon);
+				loopAttributes(c, filter, mon);
+				loopProcessor.endElement();
+			} finally {
+				handle.unlock();
+				file = null;
+				currentGroupBeingProcessed = null;
+				dataByObject = null;
+			}
+		}
+	}
+
+	private void loopChildrenInParallel(IParallelNexusTreeProcessor processor, List<Group> children, boolean debug,
+			final IMonitor mon) throws NexusException, NexusExtractorException {
+		ForkJoinPool forkJoinPool = getPool();
+		int size = children.size();
+		int runs = Math.min(size, forkJoinPool.getParallelism());
+		List<IParallelNexusTreeProcessor> forks = new ArrayList<>(runs);
+		List<Callable<RESPONSE>> tasks = new ArrayList<>(runs);
+		for (int i = 0; i < runs; i++) {
+			List<Group> run = children.subList(i * size / runs, (i + 1) * size / runs);
+			IParallelNexusTreeProcessor fork = processor.fork();
+			forks.add(fork);
+			NexusExtractor extractor = new NexusExtractor(fileName, fileCache);
+			extractor.dataByObject = dataByObject;
+			tasks.add(() -> extractor.loopChildren(run, fork, debug, mon));
+		}
+		List<Future<RESPONSE>> results = forkJoinPool.invokeAll(tasks);
+		for (int i = 0; i < runs; i++) {
+			RESPONSE response;
+			try {
+				response = results.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new NexusExtractorException("Interrupted whilst reading " + fileName, e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof NexusException) {
+					throw (NexusException) cause;
+				} else if (cause instanceof NexusExtractorException) {
+					throw (NexusExtractorException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new NexusExtractorException("Error reading " + fileName, cause);
+			}
+			processor.join(forks.get(i));
+			if (response == RESPONSE.NO_MORE) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Loop over some of the children of the top element using a separate handle on the file
+	 */
+	private RESPONSE loopChildren(List<Group> children, INexusTreeProcessor processor, boolean debug, final IMonitor mon)
+			throws NexusException, NexusExtractorException {
+		this.loopProcessor = processor;
+		try (NexusFile runFile = NexusFileHDF5.openNexusFileReadOnly(fileName)) {
+			file = runFile;
 			file.setDebug(debug);
-			loop(new Group(null, topName, topClass), mon);
-		} finally {
-			if (file != null) {
-				file.close();
+			GroupNode top = file.getGroup(Tree.ROOT, false);
+			for (Group child : children) {
+				if (loop(new Group(top, child.name, child.NXclass, child.external), mon) == RESPONSE.NO_MORE) {
+					return RESPONSE.NO_MORE;
+				}
 			}
+			return RESPONSE.GO_INTO;
+		} finally {
+			file = null;
 			currentGroupBeingProcessed = null;
 		}
 	}
@@ -310,6 +633,29 @@ public final class NexusExtractor implements INexusDataGetter {
 	}
 
 	/**
+	 * System property for the number of bytes of chunk-aligned slabs held for reading slabs of chunked datasets
+	 * (default 0, which reads each slab as given)
+	 */
+	public static final String CHUNK_CACHE_PROPERTY = "gda.nexus.extractor.chunkCache.maxBytes";
+
+	private static final NexusGroupDataCache chunkCache = new NexusGroupDataCache(Long.getLong(CHUNK_CACHE_PROPERTY, 0));
+
+	/**
+	 * @return cache of the chunk-aligned slabs from which slabs of chunked datasets are taken
+	 */
+	public static NexusGroupDataCache getChunkCache() {
+		return chunkCache;
+	}
+
+	/**
+	 * The file is read through the shared {@link NexusFileCache} so repeated calls do not reopen it. Calls for
+	 * different files run concurrently whereas calls for the same file take turns using its handle. If the shared
+	 * {@link NexusGroupDataCache} is enabled the data is cached.
+	 * <p>
+	 * If {@value #CHUNK_CACHE_PROPERTY} is set, a slab of a chunked dataset is taken from the smallest slab of whole
+	 * chunks that holds it, which is read once and kept in the {@link #getChunkCache() chunk cache}, so that
+	 * consecutive small slabs do not decompress the same chunks again.
+	 *
 	 * @param source
 	 *            source of data
 	 * @param nodePathWithClasses
@@ -322,10 +668,11 @@ public final class NexusExtractor implements INexusDataGetter {
 	 * @return NexusGroupData
 	 * @throws NexusException
 	 */
-	public static synchronized NexusGroupData getNexusGroupData(URL source, String nodePathWithClasses, int[] startPos,
+	public static NexusGroupData getNexusGroupData(URL source, String nodePathWithClasses, int[] startPos,
  int[] dims, boolean debug)
 			throws NexusException {
-		return new SimpleExtractor(source, nodePathWithClasses, startPos, dims, debug).getData();
+		return NexusGroupDataCache.getInstance().get(source, nodePathWithClasses, startPos, dims,
+				() -> new SimpleExtractor(source, nodePathWithClasses, startPos, dims, debug).getData());
 	}
 
 	/**
@@ -358,9 +705,58 @@ public final class NexusExtractor implements INexusDataGetter {
 	 * @return the NexusGroupData from a node - reading from the file if possible and requested
 	 * @throws NexusExtractorException
 	 * @throws NexusException
+	 * @see NexusSlabPrefetcher
 	 */
 	public static NexusGroupData getNexusGroupDataSlab(INexusTree node, int[] startPos, int[] dims)
 			throws NexusExtractorException, NexusException {
+		NexusSlabPrefetcher prefetcher = NexusSlabPrefetcher.getInstance();
+		if (prefetcher.isEnabled()) {
+			return prefetcher.getSlab(getSource(node), node.getNodePathWithClasses(), startPos, dims);
+		}
+		return NexusExtractor.getNexusGroupData(getSource(node), node.getNodePathWithClasses(), startPos, dims,
+				logger.isDebugEnabled());
+	}
+
+	/**
+	 * Read all the slabs of a dataset in turn through one handle on the file. Use this rather than repeated calls of
+	 * getNexusGroupDataSlab, e.g. to process each frame of a stack of images
+	 *
+	 * @param node
+	 *            an SDS
+	 * @param slabShape
+	 *            shape of each slab, a value less than 1 takes the whole of that dimension
+	 * @param order
+	 *            dimensions from slowest to fastest varying, null for the order of the dimensions of the dataset
+	 * @return iterator over the slabs which must be closed after use
+	 * @throws NexusExtractorException
+	 * @throws NexusException
+	 */
+	public static NexusSlabIterator getNexusGroupDataSlabs(INexusTree node, int[] slabShape, int[] order)
+			throws NexusExtractorException, NexusException {
+		return new NexusSlabIterator(getSource(node).getPath(),
+				SimpleExtractor.createAugmentedPath(node.getNodePathWithClasses()), slabShape, order);
+	}
+
+	/**
+	 * @param source
+	 * @param nodePathWithClasses
+	 *            of an SDS
+	 * @return shape of the SDS
+	 * @throws NexusException
+	 */
+	static int[] getShape(URL source, String nodePathWithClasses) throws NexusException {
+		try (NexusFileCache.Handle handle = NexusFileCache.getInstance().acquire(source.getPath())) {
+			handle.lock();
+			try {
+				return handle.getFile().getData(SimpleExtractor.createAugmentedPath(nodePathWithClasses)).getDataset()
+						.getShape();
+			} finally {
+				handle.unlock();
+			}
+		}
+	}
+
+	private static URL getSource(INexusTree node) throws NexusExtractorException {
 		INexusTree top = node;
 		while (top.getParentNode() != null) {
 			top = top.getParentNode();
@@ -368,9 +764,7 @@ public final class NexusExtractor implements INexusDataGetter {
 		if (!(top instanceof INexusSourceProvider)) {
 			throw new NexusExtractorException("top node is not INexusSourceProvider");
 		}
-		URL source = ((INexusSourceProvider) top).getSource();
-		return NexusExtractor.getNexusGroupData(source, node.getNodePathWithClasses(), startPos, dims,
-				logger.isDebugEnabled());
+		return ((INexusSourceProvider) top).getSource();
 	}
 }
 
@@ -380,14 +774,30 @@ class Group {
 	final String NXclass;
 	final Node parent;
 
+	/**
+	 * True if reached through an external link, so that IDs of its nodes are those of another file
+	 */
+	final boolean external;
+
+	/**
+	 * Data node and attributes of an SDS, read when first needed while visiting it
+	 */
+	DataNode dataNode;
+	Map<String, Attribute> attributes;
+
 	Group(Node parent, String name, String NXclass) {
+		this(parent, name, NXclass, false);
+	}
+
+	Group(Node parent, String name, String NXclass, boolean external) {
 		this.parent = parent;
 		this.name = name;
 		this.NXclass = NXclass;
+		this.external = external;
 	}
 
 	static Group getInstance(Group source) {
-		return new Group(source.parent, source.name, source.NXclass);
+		return new Group(source.parent, source.name, source.NXclass, source.external);
 	}
 
 	String getName() {
@@ -462,13 +872,13 @@ class SimpleExtractor {
 		this.nodePathWithClasses = nodePathWithClasses;
 	}
 
-	private String createAugmentedPath(String nodePathWithClasses) {
+	static String createAugmentedPath(String nodePathWithClasses) {
 		while (nodePathWithClasses.startsWith("/"))
 			nodePathWithClasses = nodePathWithClasses.substring(1);
 		return split(new StringBuilder(), nodePathWithClasses).toString();
 	}
 
-	private StringBuilder split(StringBuilder path, String bits) {
+	private static StringBuilder split(StringBuilder path, String bits) {
 		String[] nodes = bits.split("/", 3);
 		path.append(Node.SEPARATOR);
 		path.append(nodes[0]);
@@ -486,6 +896,19 @@ class SimpleExtractor {
 	 * @throws NexusException
 	 */
 	public NexusGroupData getData(NexusFile file, String nodePathWithClasses) throws NexusException {
+		return getData(file, nodePathWithClasses, NexusExtractor.getChunkCache());
+	}
+
+	/**
+	 * @param file
+	 * @param nodePathWithClasses
+	 * @param chunkCache
+	 *            cache of super-slabs of chunked datasets
+	 * @return node with given path
+	 * @throws NexusException
+	 */
+	NexusGroupData getData(NexusFile file, String nodePathWithClasses, NexusGroupDataCache chunkCache)
+			throws NexusException {
 		String augmentedPath = createAugmentedPath(nodePathWithClasses);
 		String attrName = null;
 		if (augmentedPath.endsWith(NexusExtractor.AttrClassName)) {
@@ -516,11 +939,29 @@ class SimpleExtractor {
 					stop[i] = dims[i] + start[i];
 				}
 			}
+			if (chunkCache.isEnabled() && source != null && !data.isString()) {
+				return ChunkAlignedReader.read(chunkCache, source, nodePathWithClasses, lazy.getShape(),
+						data.getChunkShape(), getItemBytes(lazy), start, stop,
+						(from, to) -> getSlice(lazy, SliceND.createSlice(lazy, from, to)));
+			}
 			slice = SliceND.createSlice(lazy, start, stop);
 		} else {
 			slice = SliceND.createSlice(lazy, null, null);
 		}
 
+		return getSlice(lazy, slice);
+	}
+
+	/**
+	 * @param lazy
+	 * @return number of bytes in each item, including all the elements of a compound item
+	 */
+	static int getItemBytes(ILazyDataset lazy) {
+		int elements = lazy.getElementsPerItem();
+		return InterfaceUtils.getItemBytes(elements, InterfaceUtils.getInterfaceFromClass(elements, lazy.getElementClass()));
+	}
+
+	private static NexusGroupData getSlice(ILazyDataset lazy, SliceND slice) throws NexusException {
 		try {
 			return NexusGroupData.createFromDataset(lazy.getSlice(slice));
 		} catch (DatasetException e) {
@@ -529,9 +970,15 @@ class SimpleExtractor {
 	}
 
 	protected final NexusGroupData getData() throws NexusException {
-		try (NexusFile file = NexusFileHDF5.openNexusFileReadOnly(source.getPath())) {
-			file.setDebug(debug);
-			return getData(file, nodePathWithClasses);
+		try (NexusFileCache.Handle handle = NexusFileCache.getInstance().acquire(source.getPath())) {
+			handle.lock();
+			try {
+				NexusFile file = handle.getFile();
+				file.setDebug(debug);
+				return getData(file, nodePathWithClasses);
+			} finally {
+				handle.unlock();
+			}
 		}
 	}
 }
@@ -0,0 +1,362 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.dawnsci.hdf5.nexus.NexusFileHDF5;
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.dawnsci.nexus.NexusFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of read-only NexusFile handles keyed by the absolute path of the file.
+ * <p>
+ * A handle is obtained with {@link #acquire(String)} and must be closed after use, which returns it to the cache. Handles
+ * are reference counted so a file is only closed once no caller is using it. As a handle may be shared between threads
+ * it must be locked with {@link Handle#lock()} while the file is in use; handles on different files can be used in
+ * parallel. The time spent waiting for locks is recorded, see {@link #getLockWaitTime(TimeUnit)}.
+ * <p>
+ * Unused handles are closed when
+ * <ul>
+ * <li>the cache holds more than its maximum number of handles (least recently used first)</li>
+ * <li>they have been idle for longer than the idle timeout</li>
+ * <li>the modification time or size of the file changes, so a rewritten file is never read through a stale handle</li>
+ * </ul>
+ * The shared instance is configured with the system properties {@value #SIZE_PROPERTY} (default 8, 0 disables caching)
+ * and {@value #IDLE_TIME_PROPERTY} (in milliseconds, default 30000).
+ */
+public final class NexusFileCache {
+	private static final Logger logger = LoggerFactory.getLogger(NexusFileCache.class);
+
+	/**
+	 * System property for the maximum number of handles held
+	 */
+	public static final String SIZE_PROPERTY = "gda.nexus.fileCache.size";
+
+	/**
+	 * System property for the time in milliseconds after which an unused handle is closed
+	 */
+	public static final String IDLE_TIME_PROPERTY = "gda.nexus.fileCache.idleTime";
+
+	private static final NexusFileCache instance = new NexusFileCache(Integer.getInteger(SIZE_PROPERTY, 8),
+			Long.getLong(IDLE_TIME_PROPERTY, 30000), NexusFileHDF5::openNexusFileReadOnly);
+
+	/**
+	 * @return the cache shared by all readers in this process
+	 */
+	public static NexusFileCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Opens a file for reading
+	 */
+	interface Opener {
+		NexusFile open(String path) throws NexusException;
+	}
+
+	private final int maxSize;
+	private final long idleTimeNanos;
+	private final Opener opener;
+
+	/**
+	 * Entries in access order so the first entry is the least recently used
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private ScheduledExecutorService sweeper;
+
+	private final LongAdder locks = new LongAdder();
+	private final LongAdder contendedLocks = new LongAdder();
+	private final LongAdder lockWaitNanos = new LongAdder();
+	private final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+	NexusFileCache(int maxSize, long idleTimeMillis, Opener opener) {
+		this.maxSize = maxSize;
+		this.idleTimeNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeMillis);
+		this.opener = opener;
+	}
+
+	/**
+	 * Get a read-only handle on a file, opening the file if no current handle is cached
+	 *
+	 * @param path
+	 * @return handle which must be closed when finished with
+	 * @throws NexusException
+	 */
+	public Handle acquire(String path) throws NexusException {
+		FileStamp stamp = FileStamp.of(path);
+		if (maxSize <= 0) {
+			return new Handle(new Entry(path, opener.open(path), stamp, true));
+		}
+		String key = Paths.get(path).toAbsolutePath().normalize().toString();
+		List<Entry> toClose = new ArrayList<>();
+		try {
+			synchronized (this) {
+				Entry entry = entries.get(key);
+				if (entry != null) {
+					if (entry.stamp.equals(stamp) && stamp != FileStamp.MISSING) {
+						entry.refCount++;
+						return new Handle(entry);
+					}
+					logger.debug("Dropping stale handle on {}", path);
+					entries.remove(key);
+					retire(entry, toClose);
+				}
+			}
+			Entry opened = new Entry(path, opener.open(path), stamp, false);
+			synchronized (this) {
+				Entry entry = entries.get(key);
+				if (entry != null && entry.stamp.equals(stamp)) {
+					// another thread opened the file while we were doing so
+					entry.refCount++;
+					toClose.add(opened);
+					return new Handle(entry);
+				}
+				if (entry != null) {
+					entries.remove(key);
+					retire(entry, toClose);
+				}
+				opened.refCount++;
+				entries.put(key, opened);
+				evict(toClose);
+				startSweeper();
+				return new Handle(opened);
+			}
+		} finally {
+			closeAll(toClose);
+		}
+	}
+
+	/**
+	 * Close all unused handles that have been idle for longer than the idle time
+	 */
+	public void expireIdle() {
+		List<Entry> toClose = new ArrayList<>();
+		synchronized (this) {
+			long now = System.nanoTime();
+			Iterator<Entry> it = entries.values().iterator();
+			while (it.hasNext()) {
+				Entry e = it.next();
+				if (e.refCount == 0 && now - e.lastUsed > idleTimeNanos) {
+					it.remove();
+					toClose.add(e);
+				}
+			}
+		}
+		closeAll(toClose);
+	}
+
+	/**
+	 * Close all unused handles and mark handles in use to be closed when released
+	 */
+	public void clear() {
+		List<Entry> toClose = new ArrayList<>();
+		synchronized (this) {
+			for (Entry e : entries.values()) {
+				retire(e, toClose);
+			}
+			entries.clear();
+		}
+		closeAll(toClose);
+	}
+
+	/**
+	 * @return number of handles currently cached
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private void release(Entry entry) {
+		if (entry.uncached) {
+			close(entry);
+			return;
+		}
+		boolean close;
+		synchronized (this) {
+			entry.refCount--;
+			entry.lastUsed = System.nanoTime();
+			close = entry.retired && entry.refCount == 0;
+		}
+		if (close) {
+			close(entry);
+		}
+	}
+
+	/**
+	 * Remove least recently used handles not in use until within size. Must hold lock
+	 */
+	private void evict(List<Entry> toClose) {
+		Iterator<Entry> it = entries.values().iterator();
+		while (entries.size() > maxSize && it.hasNext()) {
+			Entry e = it.next();
+			if (e.refCount == 0) {
+				it.remove();
+				toClose.add(e);
+			}
+		}
+	}
+
+	/**
+	 * Mark entry as no longer cached and close it now if unused. Must hold lock
+	 */
+	private static void retire(Entry entry, List<Entry> toClose) {
+		entry.retired = true;
+		if (entry.refCount == 0) {
+			toClose.add(entry);
+		}
+	}
+
+	private void startSweeper() {
+		if (sweeper == null && idleTimeNanos > 0) {
+			sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "NexusFileCache sweeper");
+				t.setDaemon(true);
+				return t;
+			});
+			long period = Math.max(TimeUnit.NANOSECONDS.toMillis(idleTimeNanos) / 2, 100);
+			sweeper.scheduleWithFixedDelay(this::expireIdle, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static void closeAll(List<Entry> entries) {
+		for (Entry e : entries) {
+			close(e);
+		}
+	}
+
+	private static void close(Entry entry) {
+		try {
+			entry.file.close();
+		} catch (NexusException e) {
+			logger.warn("Could not close {}", entry.path, e);
+		}
+	}
+
+	private static final class Entry {
+		final String path;
+		final NexusFile file;
+		final FileStamp stamp;
+		final boolean uncached;
+		int refCount = 0;
+		long lastUsed = System.nanoTime();
+		boolean retired = false;
+		final ReentrantLock lock = new ReentrantLock();
+
+		Entry(String path, NexusFile file, FileStamp stamp, boolean uncached) {
+			this.path = path;
+			this.file = file;
+			this.stamp = stamp;
+			this.uncached = uncached;
+		}
+	}
+
+	/**
+	 * A reference to an open file. Closing the handle releases the reference
+	 */
+	public final class Handle implements AutoCloseable {
+		private final Entry entry;
+		private boolean released = false;
+
+		private Handle(Entry entry) {
+			this.entry = entry;
+		}
+
+		/**
+		 * @return open file
+		 */
+		public NexusFile getFile() {
+			return entry.file;
+		}
+
+		/**
+		 * Obtain exclusive use of the file. A NexusFile must not be used by more than one thread at a time so callers
+		 * sharing a handle must hold this lock while using the file
+		 */
+		public void lock() {
+			locks.increment();
+			if (!entry.lock.tryLock()) {
+				long start = System.nanoTime();
+				entry.lock.lock();
+				long wait = System.nanoTime() - start;
+				contendedLocks.increment();
+				lockWaitNanos.add(wait);
+				maxLockWaitNanos.accumulateAndGet(wait, Math::max);
+			}
+		}
+
+		/**
+		 * Release exclusive use of the file
+		 */
+		public void unlock() {
+			entry.lock.unlock();
+		}
+
+		@Override
+		public void close() {
+			if (!released) {
+				released = true;
+				release(entry);
+			}
+		}
+	}
+
+	/**
+	 * @return number of times a handle has been locked
+	 */
+	public long getLockCount() {
+		return locks.sum();
+	}
+
+	/**
+	 * @return number of times a caller had to wait for a handle used by another thread
+	 */
+	public long getContendedLockCount() {
+		return contendedLocks.sum();
+	}
+
+	/**
+	 * @param unit
+	 * @return total time callers have waited for handles used by other threads
+	 */
+	public long getLockWaitTime(TimeUnit unit) {
+		return unit.convert(lockWaitNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit
+	 * @return longest time a caller has waited for a handle used by another thread
+	 */
+	public long getMaxLockWaitTime(TimeUnit unit) {
+		return unit.convert(maxLockWaitNanos.get(), TimeUnit.NANOSECONDS);
+	}
+}
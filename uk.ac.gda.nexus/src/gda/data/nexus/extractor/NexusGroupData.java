@@ -18,7 +18,12 @@
 
 package gda.data.nexus.extractor;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.nio.charset.Charset;
 import java.util.Arrays;
@@ -49,6 +54,22 @@ public class NexusGroupData implements Serializable {
 
 	private Serializable data;
 
+	/**
+	 * dataset whose buffer is data, so that toDataset can return a view of it rather than a copy
+	 */
+	private transient Dataset dataset;
+
+	/**
+	 * copy on the heap of data held off heap, kept while in use so that repeated calls to getBuffer or toDataset
+	 * do not copy it again
+	 */
+	private transient WeakReference<Serializable> heapCopy;
+
+	/**
+	 * true if data is shared with other instances, e.g. by a cache, so toDataset must not return a view of it
+	 */
+	private transient boolean sharedData;
+
 	/**
 	 * dimensions of data
 	 */
@@ -109,7 +130,7 @@ public class NexusGroupData implements Serializable {
 	NexusGroupData(int[] dimensions, Class<? extends Dataset> clazz, Serializable data, int[] chunkDimensions) {
 		this.dimensions = dimensions;
 		this.clazz = clazz;
-		this.data = data;
+		this.data = OffHeapBuffer.store(data);
 		this.chunkDimensions = chunkDimensions;
 	}
 
@@ -126,8 +147,15 @@ public class NexusGroupData implements Serializable {
 	 */
 	public NexusGroupData(IDataset data) {
 		Dataset ds = DatasetUtils.convertToDataset(data);
+		if (ds.getStrides() != null || ds.getOffset() != 0) {
+			// the buffer of a view can hold more than its items
+			ds = ds.clone();
+		}
 		dimensions = ds.getShapeRef();
-		this.data = ds.getBuffer();
+		this.data = OffHeapBuffer.store(ds.getBuffer());
+		if (!(this.data instanceof OffHeapBuffer)) {
+			dataset = ds;
+		}
 		clazz = ds.getClass();
 		chunkDimensions = calcChunksFromInterface(dimensions, clazz);
 	}
@@ -149,7 +177,7 @@ public class NexusGroupData implements Serializable {
 	}
 
 	/**
-	 * TODO replace with hdf.object.Dataset#stringToByte Makes fixed size byte array
+	 * Makes fixed size byte array
 	 *
 	 * @param text
 	 * @param maxLength
@@ -157,69 +185,16 @@ public class NexusGroupData implements Serializable {
 	 * @return serializable
 	 */
 	private static Serializable makeBytes(String[] text, int maxLength) {
-		int n = text.length;
-		byte[][] lines = new byte[n][];
-		int max = -1;
-		for (int i = 0; i < n; i++) {
-			String t = text[i];
-			if (t == null)
-				continue;
-			byte[] l = t.getBytes(UTF8);
-			if (maxLength > 0) {
-				if (l.length != maxLength) {
-					l = Arrays.copyOf(l, maxLength);
-				}
-			}
-			max = Math.max(max, l.length);
-			lines[i] = l;
-		}
-		byte[] bdata = new byte[n * max];
-		int k = 0;
-		for (int i = 0; i < n; i++) {
-			System.arraycopy(lines[i], 0, bdata, k, lines[i].length);
-			k += max;
-		}
-		return bdata;
-	}
-
-	private static int getMaxLength(String[] text) {
-		int n = text.length;
-		int max = -1;
-		for (int i = 0; i < n; i++) {
-			String t = text[i];
-			if (t == null)
-				continue;
-			byte[] line = t.getBytes(UTF8);
-			max = Math.max(max, line.length);
-		}
-		return max;
+		return FixedLengthStrings.encode(text, maxLength);
 	}
 
 	private static String[] makeStrings(byte[] bdata, int maxLength) {
 		if (maxLength <= 0) { // single string case
 			return new String[] { new String(bdata, UTF8) };
 		}
-		int n = bdata.length / maxLength;
-		String[] text = new String[n];
-		if (n == 1) {
-			int end = 0;
-			int stop = Math.min(maxLength, bdata.length);
-			while (end < stop && bdata[end++] != 0) {
-			}
-			if (end == stop) {
-				end++;
-			}
-			text[0] = new String(bdata, 0, end - 1, UTF8);
-		} else {
-			int k = 0;
-			for (int i = 0; i < n; i++) {
-				int end = k;
-				int stop = Math.min(k + maxLength, bdata.length);
-				while (end < stop && bdata[end++] != 0) {
-				}
-				text[i] = new String(bdata, k, end - k - 1, UTF8);
-				k += maxLength;
-			}
+		String[] text = new String[FixedLengthStrings.count(bdata, maxLength)];
+		for (int i = 0; i < text.length; i++) {
+			text[i] = FixedLengthStrings.decode(bdata, i * maxLength, maxLength);
 		}
 		return text;
 	}
@@ -361,6 +336,7 @@ public class NexusGroupData implements Serializable {
 	 * @return The data buffer compatible with type, null if data not extracted
 	 */
 	public Serializable getBuffer(boolean encode) {
+		Serializable data = heapData();
 		if (isChar()) {
 			if (!encode && data instanceof byte[]) {
 				return makeStrings((byte[]) data, textLength);
@@ -372,15 +348,125 @@ public class NexusGroupData implements Serializable {
 		return data;
 	}
 
+	/**
+	 * Get one string of character data, decoding only that string when held as bytes
+	 *
+	 * @param index
+	 *            of string in data
+	 * @return string
+	 */
+	public String getString(int index) {
+		Serializable data = heapData();
+		if (data instanceof String[]) {
+			return ((String[]) data)[index];
+		}
+		if (!isChar() || !(data instanceof byte[])) {
+			throw new IllegalStateException("Data is not characters");
+		}
+		byte[] bdata = (byte[]) data;
+		if (index < 0 || index >= FixedLengthStrings.count(bdata, textLength)) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range");
+		}
+		if (textLength <= 0) {
+			return new String(bdata, UTF8);
+		}
+		return FixedLengthStrings.decode(bdata, index * textLength, textLength);
+	}
+
 	/**
 	 * @return Returns the value of data and sets data to null
 	 */
 	public Object releaseData() {
-		Object d = data;
+		Object d = heapData();
 		data = null;
+		dataset = null;
+		heapCopy = null;
 		return d;
 	}
 
+	/**
+	 * @return estimate of the number of bytes used by the data
+	 */
+	long getDataBytes() {
+		if (data == null) {
+			return 0;
+		}
+		if (data instanceof OffHeapBuffer) {
+			return ((OffHeapBuffer) data).getBytes();
+		}
+		if (data instanceof String[]) {
+			long bytes = 0;
+			for (String s : (String[]) data) {
+				bytes += 40 + (s == null ? 0 : 2L * s.length());
+			}
+			return bytes;
+		}
+		Class<?> component = data.getClass().getComponentType();
+		if (component != null && component.isPrimitive()) {
+			return (long) Array.getLength(data) * OffHeapBuffer.itemBytes(component);
+		}
+		// multi-dimensional array
+		return dimensions == null ? 0 : ShapeUtils.calcLongSize(dimensions) * Double.BYTES;
+	}
+
+	/**
+	 * @return data as an array on the heap, copying it if it is stored off heap and the last copy is not in use
+	 */
+	private Serializable heapData() {
+		if (!(data instanceof OffHeapBuffer)) {
+			return data;
+		}
+		WeakReference<Serializable> ref = heapCopy;
+		Serializable copy = ref == null ? null : ref.get();
+		if (copy == null) {
+			copy = ((OffHeapBuffer) data).toArray();
+			heapCopy = new WeakReference<>(copy);
+		}
+		return copy;
+	}
+
+	/**
+	 * @return copy sharing the values of this, whose fields can be changed and whose data released without changing
+	 *         this. Its toDataset copies the values
+	 */
+	NexusGroupData shallowCopy() {
+		NexusGroupData copy = new NexusGroupData();
+		copy.data = data;
+		copy.sharedData = true;
+		copy.dimensions = dimensions == null ? null : dimensions.clone();
+		copy.chunkDimensions = chunkDimensions == null ? null : chunkDimensions.clone();
+		copy.clazz = clazz;
+		copy.compressionType = compressionType;
+		copy.isDetectorEntryData = isDetectorEntryData;
+		copy.externalDataRank = externalDataRank;
+		copy.isUnsigned = isUnsigned;
+		copy.textLength = textLength;
+		return copy;
+	}
+
+	/**
+	 * Get a slab of the values. When they are held off heap only the items of the slab are copied
+	 *
+	 * @param start
+	 * @param stop
+	 * @return slab
+	 */
+	NexusGroupData getSlice(int[] start, int[] stop) {
+		NexusGroupData slice;
+		if (data instanceof OffHeapBuffer && dimensions != null && dimensions.length == start.length) {
+			int[] dims = new int[start.length];
+			for (int i = 0; i < dims.length; i++) {
+				dims[i] = stop[i] - start[i];
+			}
+			slice = new NexusGroupData(dims, clazz, ((OffHeapBuffer) data).slice(dimensions, start, stop),
+					calcChunksFromInterface(dims, clazz));
+		} else {
+			slice = createFromDataset(toDataset().getSlice(start, stop, null));
+		}
+		slice.isUnsigned = isUnsigned;
+		return slice;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer msg = new StringBuffer("");
@@ -405,15 +491,7 @@ public class NexusGroupData implements Serializable {
 		if (data instanceof String[]) {
 			return ((String[]) data)[0];
 		} else if (data instanceof byte[]) {
-			byte[] bdata = (byte[]) data;
-			int end = Math.min(bdata.length, textLength);
-			int i;
-			for (i = 0; i < end; i++) {
-				if (bdata[i] == 0) {
-					break;
-				}
-			}
-			return new String(bdata, 0, i, UTF8);
+			return FixedLengthStrings.decode((byte[]) data, 0, textLength);
 		}
 		return "";
 	}
@@ -425,131 +503,124 @@ public class NexusGroupData implements Serializable {
 	 * @return XML representation of the object
 	 */
 	public String dataToTxt(boolean newlineAfterEach, boolean dataAsString, boolean wrap) {
-		StringBuffer msg = new StringBuffer();
-		if (data != null) {
-			if (isChar()) {
-				if (wrap)
-					msg.append("<value>");
-				msg.append(getAsString());
-				if (wrap)
-					msg.append("</value>");
+		StringBuilder msg = new StringBuilder();
+		try {
+			writeData(msg, newlineAfterEach, dataAsString, wrap, -1);
+		} catch (IOException e) {
+			// not thrown by StringBuilder
+			throw new UncheckedIOException(e);
+		}
+		return msg.toString();
+	}
+
+	/**
+	 * Write the values as given by dataToTxt, one at a time so the text is not held in memory. Values held off heap
+	 * are not copied to the heap
+	 *
+	 * @param out
+	 * @param newlineAfterEach
+	 * @param dataAsString
+	 * @param wrap
+	 * @param maxValues
+	 *            maximum number of values written, followed by ... if there are more; less than 0 to write all values
+	 * @throws IOException
+	 */
+	public void writeData(Appendable out, boolean newlineAfterEach, boolean dataAsString, boolean wrap, int maxValues)
+			throws IOException {
+		if (data == null) {
+			return;
+		}
+		if (isChar()) {
+			if (wrap)
+				out.append("<value>");
+			out.append(getAsString());
+			if (wrap)
+				out.append("</value>");
+			if (newlineAfterEach) {
+				out.append('\n');
+			}
+			return;
+		}
+		int n = getValueCount(data);
+		int limit = maxValues < 0 ? n : Math.min(n, maxValues);
+		if (dataAsString) {
+			if (wrap)
+				out.append("<value>");
+			if (n < 0) {
+				out.append(data.toString());
+				out.append(',');
+			}
+			for (int i = 0; i < limit; i++) {
+				appendValue(out, data, i);
+				out.append(',');
+			}
+			if (limit < n) {
+				out.append("...");
+			}
+			if (wrap)
+				out.append("</value>");
+			if (newlineAfterEach) {
+				out.append('\n');
+			}
+		} else {
+			out.append("<values>");
+			if (newlineAfterEach) {
+				out.append('\n');
+			}
+			if (n < 0) {
+				out.append(data.toString());
+			}
+			for (int i = 0; i < limit; i++) {
+				out.append("<value>");
+				appendValue(out, data, i);
+				out.append("</value>");
 				if (newlineAfterEach) {
-					msg.append('\n');
+					out.append('\n');
 				}
-			} else {
-				if (dataAsString) {
-					if (wrap)
-						msg.append("<value>");
-					if (data instanceof byte[]) {
-						for (byte d : (byte[]) data) {
-							msg.append(Byte.toString(d));
-							msg.append(',');
-						}
-					} else if (data instanceof short[]) {
-						for (short d : (short[]) data) {
-							msg.append(Short.toString(d));
-							msg.append(',');
-						}
-					} else if (data instanceof int[]) {
-						for (int d : (int[]) data) {
-							msg.append(Integer.toString(d));
-							msg.append(',');
-						}
-					} else if (data instanceof long[]) {
-						for (long d : (long[]) data) {
-							msg.append(Long.toString(d));
-							msg.append(',');
-						}
-					} else if (data instanceof float[]) {
-						for (float d : (float[]) data) {
-							msg.append(Float.toString(d));
-							msg.append(',');
-						}
-					} else if (data instanceof double[]) {
-						for (double d : (double[]) data) {
-							msg.append(Double.toString(d));
-							msg.append(',');
-						}
-					} else {
-						msg.append(data.toString());
-						msg.append(',');
-					}
-//					msg.deleteCharAt(msg.length()-1);
-					if (wrap)
-						msg.append("</value>");
-					if (newlineAfterEach) {
-						msg.append('\n');
-					}
-				} else {
-					msg.append("<values>");
-					if (newlineAfterEach) {
-						msg.append('\n');
-					}
-					if (data instanceof byte[]) {
-						for (byte d : (byte[]) data) {
-							msg.append("<value>");
-							msg.append(Byte.toString(d));
-							msg.append("</value>");
-							if (newlineAfterEach) {
-								msg.append('\n');
-							}
-						}
-					} else if (data instanceof short[]) {
-						for (short d : (short[]) data) {
-							msg.append("<value>");
-							msg.append(Short.toString(d));
-							msg.append("</value>");
-							if (newlineAfterEach) {
-								msg.append('\n');
-							}
-						}
-					} else if (data instanceof int[]) {
-						for (int d : (int[]) data) {
-							msg.append("<value>");
-							msg.append(Integer.toString(d));
-							msg.append("</value>");
-							if (newlineAfterEach) {
-								msg.append('\n');
-							}
-						}
-					} else if (data instanceof long[]) {
-						for (long d : (long[]) data) {
-							msg.append("<value>");
-							msg.append(Long.toString(d));
-							msg.append("</value>");
-							if (newlineAfterEach) {
-								msg.append('\n');
-							}
-						}
-					} else if (data instanceof float[]) {
-						for (float d : (float[]) data) {
-							msg.append("<value>");
-							msg.append(Float.toString(d));
-							msg.append("</value>");
-							if (newlineAfterEach) {
-								msg.append('\n');
-							}
-						}
-					} else if (data instanceof double[]) {
-						for (double d : (double[]) data) {
-							msg.append("<value>");
-							msg.append(Double.toString(d));
-							msg.append("</value>");
-							if (newlineAfterEach) {
-								msg.append('\n');
-							}
-						}
-					} else {
-						msg.append(data.toString());
-					}
-					msg.append("</values>");
-					if (newlineAfterEach) {
-						msg.append('\n');
-					}
+			}
+			if (limit < n) {
+				out.append("<value>...</value>");
+				if (newlineAfterEach) {
+					out.append('\n');
 				}
 			}
+			out.append("</values>");
+			if (newlineAfterEach) {
+				out.append('\n');
+			}
+		}
+	}
+
+	/**
+	 * @return number of values in a numerical array or -1 if data is not one
+	 */
+	private static int getValueCount(Serializable data) {
+		if (data instanceof OffHeapBuffer) {
+			return ((OffHeapBuffer) data).size();
+		}
+		if (data instanceof byte[] || data instanceof short[] || data instanceof int[] || data instanceof long[]
+				|| data instanceof float[] || data instanceof double[]) {
+			return Array.getLength(data);
+		}
+		return -1;
+	}
+
+	private static void appendValue(Appendable out, Serializable data, int i) throws IOException {
+		if (data instanceof double[]) {
+			out.append(Double.toString(((double[]) data)[i]));
+		} else if (data instanceof float[]) {
+			out.append(Float.toString(((float[]) data)[i]));
+		} else if (data instanceof long[]) {
+			out.append(Long.toString(((long[]) data)[i]));
+		} else if (data instanceof int[]) {
+			out.append(Integer.toString(((int[]) data)[i]));
+		} else if (data instanceof short[]) {
+			out.append(Short.toString(((short[]) data)[i]));
+		} else if (data instanceof byte[]) {
+			out.append(Byte.toString(((byte[]) data)[i]));
+		} else {
+			out.append(String.valueOf(((OffHeapBuffer) data).get(i)));
 		}
-		return msg.toString();
 	}
 
 	public Serializable getFirstValue() {
@@ -561,7 +632,11 @@ public class NexusGroupData implements Serializable {
 
 		Serializable value;
 
-		if (data.getClass().isArray()) {
+		if (data instanceof OffHeapBuffer) {
+			value = ((OffHeapBuffer) data).get(0);
+			if (value == null)
+				return value;
+		} else if (data.getClass().isArray()) {
 			if (isChar()) { // reinterpret byte arrays as String
 				return getStringFromArray(data);
 			}
@@ -611,7 +686,8 @@ public class NexusGroupData implements Serializable {
 	}
 
 	/**
-	 * Create a dataset based on contents
+	 * Create a dataset based on contents. If this was created from a dataset then the returned dataset
+	 * is a view that shares its buffer, so clone it before changing its values
 	 * @return dataset
 	 */
 	public Dataset toDataset() {
@@ -619,12 +695,22 @@ public class NexusGroupData implements Serializable {
 	}
 
 	/**
-	 * Create a dataset based on contents
+	 * Create a dataset based on contents. The values are only copied when this was not created from a
+	 * dataset of the same class or when they need to be converted
 	 * @param keepBitWidth
 	 * @return dataset
 	 */
 	public Dataset toDataset(boolean keepBitWidth) {
-		Dataset dataset = DatasetFactory.createFromObject(clazz, getBuffer());
+		Dataset dataset;
+		if (this.dataset != null && this.dataset.getBuffer() == data && this.dataset.getClass() == clazz) {
+			dataset = this.dataset.getView(false);
+		} else {
+			Serializable buffer = getBuffer();
+			dataset = DatasetFactory.createFromObject(clazz, buffer);
+			if (sharedData && dataset.getBuffer() == buffer) {
+				dataset = dataset.clone();
+			}
+		}
 		if (!keepBitWidth && isUnsigned) {
 			dataset = DatasetUtils.makeUnsigned(dataset);
 		}
@@ -700,7 +786,9 @@ public class NexusGroupData implements Serializable {
 		if (clazz == nClass)
 			return this;
 
-		NexusGroupData ngd = new NexusGroupData(dimensions, nClass, data, chunkDimensions);
+		// characters are never held off heap
+		Serializable d = StringDataset.class.equals(nClass) ? heapData() : data;
+		NexusGroupData ngd = new NexusGroupData(dimensions, nClass, d, chunkDimensions);
 		ngd.isDetectorEntryData = isDetectorEntryData;
 		ngd.isUnsigned = isUnsigned;
 		ngd.textLength = textLength;
@@ -716,11 +804,10 @@ public class NexusGroupData implements Serializable {
 					dims = Arrays.copyOf(dimensions, rank + 1);
 					dims[rank] = textLength;
 				} else if (rank == 0 || (rank == 1 && dimensions[0] == 1)) {
-					byte[] line = ((String[]) data)[0].getBytes(UTF8);
-					dims = new int[] { line.length };
+					dims = new int[] { FixedLengthStrings.encodedLength(((String[]) data)[0]) };
 				} else {
 					dims = Arrays.copyOf(dimensions, rank + 1);
-					dims[rank] = getMaxLength((String[]) data);
+					dims[rank] = FixedLengthStrings.maxEncodedLength((String[]) data);
 				}
 				return dims;
 			}
@@ -786,13 +873,91 @@ public class NexusGroupData implements Serializable {
 		return DoubleDataset.class.equals(clazz);
 	}
 
+	/**
+	 * Write in a binary form, much smaller and quicker to make than that given by Java serialization, to be read by
+	 * {@link #read(DataInputStream)}. Arrays of numbers are written in blocks straight from their buffer
+	 *
+	 * @param out
+	 * @param deflate
+	 *            if true compress large arrays of numbers where that makes them smaller
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out, boolean deflate) throws IOException {
+		writeInts(out, dimensions);
+		writeInts(out, chunkDimensions);
+		out.writeUTF(clazz == null ? "" : clazz.getName());
+		out.writeBoolean(compressionType != null);
+		if (compressionType != null) {
+			out.writeInt(compressionType);
+		}
+		out.writeBoolean(isDetectorEntryData);
+		out.writeInt(externalDataRank);
+		out.writeBoolean(isUnsigned);
+		out.writeInt(textLength);
+		BinaryArrays.write(out, data, deflate);
+	}
+
+	/**
+	 * @param in
+	 * @return data as written by {@link #write(DataOutputStream, boolean)}
+	 * @throws IOException
+	 */
+	public static NexusGroupData read(DataInputStream in) throws IOException {
+		int[] dimensions = readInts(in);
+		int[] chunkDimensions = readInts(in);
+		String className = in.readUTF();
+		Class<? extends Dataset> clazz = null;
+		if (!className.isEmpty()) {
+			try {
+				clazz = Class.forName(className, false, Dataset.class.getClassLoader()).asSubclass(Dataset.class);
+			} catch (ClassNotFoundException | ClassCastException e) {
+				throw new IOException("Unknown dataset class " + className, e);
+			}
+		}
+		Integer compressionType = in.readBoolean() ? in.readInt() : null;
+		boolean isDetectorEntryData = in.readBoolean();
+		int externalDataRank = in.readInt();
+		boolean isUnsigned = in.readBoolean();
+		int textLength = in.readInt();
+		NexusGroupData ngd = new NexusGroupData(dimensions, clazz, BinaryArrays.read(in), chunkDimensions);
+		ngd.compressionType = compressionType;
+		ngd.isDetectorEntryData = isDetectorEntryData;
+		ngd.externalDataRank = externalDataRank;
+		ngd.isUnsigned = isUnsigned;
+		ngd.textLength = textLength;
+		return ngd;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values == null ? -1 : values.length);
+		if (values != null) {
+			for (int v : values) {
+				out.writeInt(v);
+			}
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		if (n < 0) {
+			return null;
+		}
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + Arrays.hashCode(chunkDimensions);
 		result = prime * result + ((compressionType == null) ? 0 : compressionType.hashCode());
-		result = prime * result + ((data == null) ? 0 : data.hashCode());
+		// consistent with equals which compares the values held
+		result = prime * result + (data instanceof OffHeapBuffer ? prime + ((OffHeapBuffer) data).valuesHashCode()
+				: Arrays.deepHashCode(new Object[] { data }));
 		result = prime * result + Arrays.hashCode(dimensions);
 		result = prime * result + Objects.hashCode(clazz);
 		result = prime * result + (isDetectorEntryData ? 1231 : 1237);
@@ -824,6 +989,10 @@ public class NexusGroupData implements Serializable {
 			return false;
 		if (textLength != other.textLength)
 			return false;
+		if (data instanceof OffHeapBuffer && other.data instanceof OffHeapBuffer)
+			return data.equals(other.data);
+		if (data instanceof OffHeapBuffer || other.data instanceof OffHeapBuffer)
+			return Objects.deepEquals(heapData(), other.heapData());
 		if (!Objects.deepEquals(data, other.data))
 			return false;
 		return true;
@@ -0,0 +1,244 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.dawnsci.nexus.NexusException;
+
+/**
+ * Cache of data read from Nexus files keyed by the source, path of the node, start position and dimensions of the
+ * data read. The cache is bounded by the estimated number of bytes held, evicting the least recently used data first,
+ * and data is discarded when the modification time or size of its file changes.
+ * <p>
+ * Each caller is given its own copy of the cached NexusGroupData, so its fields can be changed and its data released,
+ * but the arrays of values are shared: do not modify those returned by getBuffer. Datasets from toDataset are copies.
+ * <p>
+ * The shared instance, used by {@link NexusExtractor#getNexusGroupData(URL, String, int[], int[], boolean)}, holds up
+ * to {@value #MAX_BYTES_PROPERTY} bytes (default 0, which disables it).
+ */
+public final class NexusGroupDataCache {
+
+	/**
+	 * System property for the maximum number of bytes held by the shared instance
+	 */
+	public static final String MAX_BYTES_PROPERTY = "gda.nexus.dataCache.maxBytes";
+
+	private static final NexusGroupDataCache instance = new NexusGroupDataCache(Long.getLong(MAX_BYTES_PROPERTY, 0));
+
+	/**
+	 * @return the cache shared by all readers in this process
+	 */
+	public static NexusGroupDataCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Reads data not found in the cache
+	 */
+	public interface Loader {
+		/**
+		 * @return data read
+		 * @throws NexusException
+		 */
+		NexusGroupData load() throws NexusException;
+	}
+
+	private final long maxBytes;
+
+	/**
+	 * Entries in access order so the first entry is the least recently used
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 * @param maxBytes
+	 *            maximum number of bytes held, 0 to disable caching
+	 */
+	public NexusGroupDataCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return maximum number of bytes held
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return true if data is cached
+	 */
+	public boolean isEnabled() {
+		return maxBytes > 0;
+	}
+
+	/**
+	 * Get data from the cache, reading and caching it if not present or out of date
+	 *
+	 * @param source
+	 *            source of data
+	 * @param nodePathWithClasses
+	 * @param startPos
+	 *            start position of the slab (can be null)
+	 * @param dims
+	 *            slab dimensions (can be null)
+	 * @param loader
+	 *            reads the data
+	 * @return data
+	 * @throws NexusException
+	 */
+	public NexusGroupData get(URL source, String nodePathWithClasses, int[] startPos, int[] dims, Loader loader)
+			throws NexusException {
+		if (!isEnabled()) {
+			misses.increment();
+			return loader.load();
+		}
+		String path = source.getPath();
+		String key = path + "#" + nodePathWithClasses + Arrays.toString(startPos) + Arrays.toString(dims);
+		FileStamp stamp = FileStamp.of(path);
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.stamp.equals(stamp) && stamp != FileStamp.MISSING) {
+					hits.increment();
+					return copy(entry.data);
+				}
+				remove(key, entry);
+				invalidations.increment();
+			}
+		}
+		misses.increment();
+		NexusGroupData data = loader.load();
+		put(key, new Entry(data, stamp));
+		return copy(data);
+	}
+
+	private static NexusGroupData copy(NexusGroupData data) {
+		return data == null ? null : data.shallowCopy();
+	}
+
+	private synchronized void put(String key, Entry entry) {
+		if (entry.stamp == FileStamp.MISSING || entry.bytes > maxBytes) {
+			return;
+		}
+		Entry old = entries.put(key, entry);
+		if (old != null) {
+			bytes -= old.bytes;
+		}
+		bytes += entry.bytes;
+		Iterator<Entry> it = entries.values().iterator();
+		while (bytes > maxBytes && it.hasNext()) {
+			Entry e = it.next();
+			it.remove();
+			bytes -= e.bytes;
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Must hold lock
+	 */
+	private void remove(String key, Entry entry) {
+		entries.remove(key);
+		bytes -= entry.bytes;
+	}
+
+	/**
+	 * Remove all data
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return number of items of data held
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return estimated number of bytes held
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return number of requests found in the cache
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of requests that were read
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return fraction of requests found in the cache
+	 */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * @return number of items removed to make space
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return number of items removed because their file changed
+	 */
+	public long getInvalidationCount() {
+		return invalidations.sum();
+	}
+
+	private static final class Entry {
+		final NexusGroupData data;
+		final FileStamp stamp;
+		final long bytes;
+
+		Entry(NexusGroupData data, FileStamp stamp) {
+			this.data = data;
+			this.stamp = stamp;
+			// allow for the key and the object itself
+			bytes = 100 + (data == null ? 0 : data.getDataBytes());
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.january.DatasetException;
+import org.eclipse.january.dataset.ILazyDataset;
+import org.eclipse.january.dataset.SliceND;
+
+/**
+ * Iterates over the slabs that tile a dataset, reading them in turn through a single handle on the file. Up to
+ * {@value #READ_AHEAD_PROPERTY} slabs (default 2, 0 reads each slab when next is called) are read in the background
+ * ahead of the caller.
+ * <p>
+ * The iterator must be closed when finished with, which releases the file. Errors reading the file are thrown as
+ * IllegalStateException by next.
+ *
+ * @see NexusExtractor#getNexusGroupDataSlabs
+ */
+public final class NexusSlabIterator implements Iterator<NexusGroupData>, AutoCloseable {
+
+	/**
+	 * System property for the number of slabs read ahead
+	 */
+	public static final String READ_AHEAD_PROPERTY = "gda.nexus.slabIterator.readAhead";
+
+	/**
+	 * Reads for one file take turns on its handle, so a few threads serve all iterators
+	 */
+	private static final ExecutorService readers = Executors.newFixedThreadPool(2, r -> {
+		Thread t = new Thread(r, "NexusSlabIterator reader");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final NexusFileCache.Handle handle;
+	private final String path;
+	private final ILazyDataset lazy;
+	private final SlabPositions positions;
+	private final int readAhead;
+	private final Deque<Future<NexusGroupData>> pending = new ArrayDeque<>();
+	private final Deque<int[]> pendingPositions = new ArrayDeque<>();
+	private int[] position;
+	private long returned;
+
+	/**
+	 * @param fileName
+	 * @param augmentedPath
+	 *            path of the dataset in the file
+	 * @param slabShape
+	 *            shape of each slab, a value less than 1 takes the whole of that dimension
+	 * @param order
+	 *            dimensions from slowest to fastest varying, null for the order of the dimensions of the dataset
+	 * @param readAhead
+	 *            number of slabs to read ahead
+	 * @throws NexusException
+	 */
+	NexusSlabIterator(String fileName, String augmentedPath, int[] slabShape, int[] order, int readAhead)
+			throws NexusException {
+		path = augmentedPath;
+		this.readAhead = readAhead;
+		handle = NexusFileCache.getInstance().acquire(fileName);
+		try {
+			handle.lock();
+			try {
+				lazy = handle.getFile().getData(augmentedPath).getDataset();
+			} finally {
+				handle.unlock();
+			}
+			positions = new SlabPositions(lazy.getShape(), slabShape, order);
+		} catch (NexusException | RuntimeException e) {
+			handle.close();
+			throw e;
+		}
+		fill();
+	}
+
+	NexusSlabIterator(String fileName, String augmentedPath, int[] slabShape, int[] order) throws NexusException {
+		this(fileName, augmentedPath, slabShape, order, Math.max(0, Integer.getInteger(READ_AHEAD_PROPERTY, 2)));
+	}
+
+	private void fill() {
+		while (pending.size() < readAhead && positions.hasNext()) {
+			int[] start = positions.next();
+			pendingPositions.add(start);
+			pending.add(readers.submit(() -> read(start)));
+		}
+	}
+
+	private NexusGroupData read(int[] start) throws NexusException {
+		int[] shape = positions.getShape(start);
+		int[] stop = new int[start.length];
+		for (int i = 0; i < stop.length; i++) {
+			stop[i] = start[i] + shape[i];
+		}
+		handle.lock();
+		try {
+			return NexusGroupData.createFromDataset(lazy.getSlice(SliceND.createSlice(lazy, start, stop)));
+		} catch (DatasetException e) {
+			throw new NexusException("Could not get slab of " + path, e);
+		} finally {
+			handle.unlock();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !pending.isEmpty() || positions.hasNext();
+	}
+
+	@Override
+	public NexusGroupData next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		returned++;
+		if (pending.isEmpty()) {
+			position = positions.next();
+			try {
+				return read(position);
+			} catch (NexusException e) {
+				throw new IllegalStateException(e.getMessage(), e);
+			}
+		}
+		Future<NexusGroupData> f = pending.poll();
+		position = pendingPositions.poll();
+		fill();
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted whilst reading " + path, e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * @return start position of the slab last returned by next
+	 */
+	public int[] getPosition() {
+		return position == null ? null : position.clone();
+	}
+
+	/**
+	 * @return total number of slabs
+	 */
+	public long getCount() {
+		return positions.getCount();
+	}
+
+	/**
+	 * @return spliterator over the remaining slabs
+	 */
+	public Spliterator<NexusGroupData> spliterator() {
+		return Spliterators.spliterator(this, getCount() - returned, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+
+	/**
+	 * @return sequential stream over the remaining slabs that closes this iterator when closed
+	 */
+	public Stream<NexusGroupData> stream() {
+		return StreamSupport.stream(spliterator(), false).onClose(this::close);
+	}
+
+	/**
+	 * Wait for any slabs being read ahead then release the file
+	 */
+	@Override
+	public void close() {
+		// reads in progress use the handle so cannot be abandoned
+		for (Future<NexusGroupData> f : pending) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				// not wanted
+			}
+		}
+		pending.clear();
+		pendingPositions.clear();
+		handle.close();
+	}
+}
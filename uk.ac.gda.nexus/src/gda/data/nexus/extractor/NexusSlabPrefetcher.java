@@ -0,0 +1,333 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads slabs of datasets, reading ahead when the slabs of a dataset are requested in a sequential pattern.
+ * <p>
+ * Requests for slabs of the same shape from the same dataset form a stream. Once two consecutive requests in a stream
+ * have moved the start position by the same step, the next slabs along that step are read in the background, up to
+ * the depth of the prefetcher, stopping at the end of the dataset. A request for a slab that has been read ahead is a
+ * hit, otherwise it is a miss and the slab is read by the caller. Slabs read ahead but not requested are discarded when
+ * the pattern changes or the file is modified. At most {@value #MAX_STREAMS} streams are followed at once.
+ * <p>
+ * The shared instance, used by {@link NexusExtractor#getNexusGroupDataSlab}, reads ahead {@value #DEPTH_PROPERTY}
+ * slabs (default 0, which disables it).
+ */
+public final class NexusSlabPrefetcher {
+	private static final Logger logger = LoggerFactory.getLogger(NexusSlabPrefetcher.class);
+
+	/**
+	 * System property for the number of slabs read ahead by the shared instance
+	 */
+	public static final String DEPTH_PROPERTY = "gda.nexus.prefetch.depth";
+
+	/**
+	 * Maximum number of streams followed
+	 */
+	public static final int MAX_STREAMS = 8;
+
+	private static final NexusSlabPrefetcher instance = new NexusSlabPrefetcher(Integer.getInteger(DEPTH_PROPERTY, 0));
+
+	private static final ExecutorService readers = Executors.newFixedThreadPool(2, r -> {
+		Thread t = new Thread(r, "NexusSlabPrefetcher reader");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * @return the prefetcher shared by all readers in this process
+	 */
+	public static NexusSlabPrefetcher getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Reads a slab
+	 */
+	interface SlabReader {
+		NexusGroupData read(URL source, String nodePathWithClasses, int[] startPos, int[] dims) throws NexusException;
+	}
+
+	/**
+	 * Reads the shape of a dataset
+	 */
+	interface ShapeReader {
+		int[] read(URL source, String nodePathWithClasses) throws NexusException;
+	}
+
+	private final int depth;
+	private final SlabReader reader;
+	private final ShapeReader shapeReader;
+
+	/**
+	 * Streams in access order so the first is the least recently used
+	 */
+	private final LinkedHashMap<String, Stream> streams = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param depth
+	 *            number of slabs to read ahead, 0 to read only what is requested
+	 */
+	public NexusSlabPrefetcher(int depth) {
+		this(depth, (source, path, start, dims) -> NexusExtractor.getNexusGroupData(source, path, start, dims, false),
+				NexusExtractor::getShape);
+	}
+
+	NexusSlabPrefetcher(int depth, SlabReader reader, ShapeReader shapeReader) {
+		this.depth = depth;
+		this.reader = reader;
+		this.shapeReader = shapeReader;
+	}
+
+	/**
+	 * @return true if slabs are read ahead
+	 */
+	public boolean isEnabled() {
+		return depth > 0;
+	}
+
+	/**
+	 * @param source
+	 *            source of data
+	 * @param nodePathWithClasses
+	 * @param startPos
+	 *            start position of the slab
+	 * @param dims
+	 *            slab dimensions
+	 * @return the slab
+	 * @throws NexusException
+	 */
+	public NexusGroupData getSlab(URL source, String nodePathWithClasses, int[] startPos, int[] dims)
+			throws NexusException {
+		if (depth <= 0 || startPos == null) {
+			misses.increment();
+			return reader.read(source, nodePathWithClasses, startPos, dims);
+		}
+		Future<NexusGroupData> ahead = next(source, nodePathWithClasses, startPos, dims);
+		if (ahead != null) {
+			try {
+				NexusGroupData data = ahead.get();
+				hits.increment();
+				return data;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new NexusException("Interrupted whilst reading " + nodePathWithClasses, e);
+			} catch (ExecutionException e) {
+				logger.debug("Slab read ahead from {} failed so reading again", nodePathWithClasses, e.getCause());
+			}
+		}
+		misses.increment();
+		return reader.read(source, nodePathWithClasses, startPos, dims);
+	}
+
+	/**
+	 * Record the request in its stream and start reading ahead. The file is examined, and the shape of the dataset
+	 * read, without holding the lock on the streams so that requests for other files are not held up by them
+	 *
+	 * @return slab already being read for the request or null
+	 */
+	private Future<NexusGroupData> next(URL source, String nodePathWithClasses, int[] startPos, int[] dims) {
+		String path = source.getPath();
+		String key = path + "#" + nodePathWithClasses + Arrays.toString(dims);
+		Request request = record(key, FileStamp.of(path), startPos);
+		if (request.step != null) {
+			int[] shape = request.stream.getShape(shapeReader, source, nodePathWithClasses);
+			if (shape != null && shape.length == startPos.length) {
+				readAhead(key, request.stream, source, nodePathWithClasses, startPos, dims, request.step, shape);
+			}
+		}
+		return request.ahead;
+	}
+
+	/**
+	 * Record the request in its stream, replacing the stream if the file has changed
+	 *
+	 * @param stamp
+	 *            of the file now
+	 */
+	private synchronized Request record(String key, FileStamp stamp, int[] startPos) {
+		Stream stream = streams.get(key);
+		if (stream == null || stamp == FileStamp.MISSING || !stream.stamp.equals(stamp)) {
+			if (stream != null) {
+				stream.discard();
+			}
+			stream = new Stream(stamp);
+			streams.put(key, stream);
+			if (streams.size() > MAX_STREAMS) {
+				Iterator<Stream> it = streams.values().iterator();
+				it.next().discard();
+				it.remove();
+			}
+		}
+		Future<NexusGroupData> ahead = stream.ahead.remove(Arrays.toString(startPos));
+
+		int[] step = null;
+		if (stream.last != null && stream.last.length == startPos.length) {
+			step = new int[startPos.length];
+			for (int i = 0; i < step.length; i++) {
+				step[i] = startPos[i] - stream.last[i];
+			}
+		}
+		boolean sequential = step != null && Arrays.equals(step, stream.step) && Arrays.stream(step).anyMatch(s -> s != 0);
+		stream.last = startPos.clone();
+		stream.step = step;
+		if (!sequential) {
+			stream.discard();
+		}
+		return new Request(stream, ahead, sequential ? step : null);
+	}
+
+	/**
+	 * Read the slabs following the request along the step, unless the stream has moved on since it was recorded
+	 */
+	private synchronized void readAhead(String key, Stream stream, URL source, String nodePathWithClasses,
+			int[] startPos, int[] dims, int[] step, int[] shape) {
+		if (streams.get(key) != stream || !Arrays.equals(stream.last, startPos)) {
+			return;
+		}
+		Set<String> wanted = new HashSet<>();
+		int[] start = startPos.clone();
+		for (int k = 0; k < depth; k++) {
+			boolean valid = true;
+			for (int i = 0; i < start.length; i++) {
+				start[i] += step[i];
+				valid &= start[i] >= 0 && (dims == null ? start[i] < shape[i] : start[i] + dims[i] <= shape[i]);
+			}
+			if (!valid) {
+				break;
+			}
+			String position = Arrays.toString(start);
+			wanted.add(position);
+			if (!stream.ahead.containsKey(position)) {
+				int[] s = start.clone();
+				stream.ahead.put(position, readers.submit(() -> reader.read(source, nodePathWithClasses, s, dims)));
+			}
+		}
+		Iterator<Map.Entry<String, Future<NexusGroupData>>> it = stream.ahead.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Future<NexusGroupData>> e = it.next();
+			if (!wanted.contains(e.getKey())) {
+				e.getValue().cancel(false);
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Discard all slabs read ahead
+	 */
+	public synchronized void clear() {
+		for (Stream s : streams.values()) {
+			s.discard();
+		}
+		streams.clear();
+	}
+
+	/**
+	 * @return number of requests for slabs that had been read ahead
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of requests for slabs that had not been read ahead
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * A request as recorded in its stream
+	 */
+	private static final class Request {
+		final Stream stream;
+		/**
+		 * slab already being read for the request or null
+		 */
+		final Future<NexusGroupData> ahead;
+		/**
+		 * step from the last request, if the same as the one before, else null
+		 */
+		final int[] step;
+
+		Request(Stream stream, Future<NexusGroupData> ahead, int[] step) {
+			this.stream = stream;
+			this.ahead = ahead;
+			this.step = step;
+		}
+	}
+
+	private static final class Stream {
+		final FileStamp stamp;
+		int[] last;
+		int[] step;
+		final Map<String, Future<NexusGroupData>> ahead = new LinkedHashMap<>();
+		private boolean shapeRead;
+		private int[] shape;
+
+		Stream(FileStamp stamp) {
+			this.stamp = stamp;
+		}
+
+		/**
+		 * @return shape of the dataset, read when first needed, or null if it could not be read. Only requests of this
+		 *         stream wait while it is read
+		 */
+		synchronized int[] getShape(ShapeReader shapeReader, URL source, String nodePathWithClasses) {
+			if (!shapeRead) {
+				shapeRead = true;
+				try {
+					shape = shapeReader.read(source, nodePathWithClasses);
+				} catch (NexusException e) {
+					logger.debug("Could not read shape of {} so not reading ahead", nodePathWithClasses, e);
+				}
+			}
+			return shape;
+		}
+
+		void discard() {
+			for (Future<NexusGroupData> f : ahead.values()) {
+				f.cancel(false);
+			}
+			ahead.clear();
+		}
+	}
+}
@@ -0,0 +1,415 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.ref.Cleaner;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.january.dataset.ShapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Storage for the values of a large NexusGroupData outside of the Java heap, either in a direct buffer or in a
+ * memory-mapped temporary file, so that they do not add to garbage collection pauses.
+ * <p>
+ * One-dimensional arrays of numbers whose size in bytes is at least the value of the system property
+ * {@value #THRESHOLD_PROPERTY} are stored off heap when a NexusGroupData is created (default 0, which disables this).
+ * If the system property {@value #MAPPED_PROPERTY} is true then a temporary file is used rather than a direct buffer.
+ * The values are copied back onto the heap when an array is needed, e.g. by getBuffer or toDataset, and when the
+ * NexusGroupData is serialized. The NexusGroupData keeps the copy while it is in use elsewhere, and a slab of the
+ * values, e.g. one taken by the chunk cache of NexusExtractor, copies only its own items.
+ * <p>
+ * The amount of data currently held off heap, and so saved from the heap, is given by {@link #getStoredBytes()}.
+ */
+public final class OffHeapBuffer implements Serializable {
+	private static final Logger logger = LoggerFactory.getLogger(OffHeapBuffer.class);
+
+	/**
+	 * System property for the size in bytes at or above which values are stored off heap
+	 */
+	public static final String THRESHOLD_PROPERTY = "gda.nexus.groupData.offHeapThreshold";
+
+	/**
+	 * System property which, if true, selects memory-mapped temporary files rather than direct buffers
+	 */
+	public static final String MAPPED_PROPERTY = "gda.nexus.groupData.offHeapMapped";
+
+	private static volatile long threshold = Long.getLong(THRESHOLD_PROPERTY, 0);
+	private static volatile boolean mapped = Boolean.getBoolean(MAPPED_PROPERTY);
+
+	private static final Cleaner cleaner = Cleaner.create();
+
+	private static final LongAdder storedBytes = new LongAdder();
+	private static final LongAdder storedCount = new LongAdder();
+	private static final LongAdder totalStoredBytes = new LongAdder();
+	private static final LongAdder copiedBytes = new LongAdder();
+
+	private final Class<?> type;
+	private final int length;
+	private final transient ByteBuffer buffer;
+
+	private OffHeapBuffer(Class<?> type, int length, ByteBuffer buffer) {
+		this.type = type;
+		this.length = length;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Set the storage used from now on
+	 *
+	 * @param threshold
+	 *            size in bytes at or above which values are stored off heap, 0 to disable
+	 * @param mapped
+	 *            if true use memory-mapped temporary files
+	 */
+	static void configure(long threshold, boolean mapped) {
+		OffHeapBuffer.threshold = threshold;
+		OffHeapBuffer.mapped = mapped;
+	}
+
+	/**
+	 * @param data
+	 * @return buffer holding a copy of the values of data if it is large enough to be stored off heap, otherwise data
+	 */
+	static Serializable store(Serializable data) {
+		long limit = threshold;
+		if (limit <= 0 || data == null) {
+			return data;
+		}
+		Class<?> type = data.getClass().getComponentType();
+		if (type == null || !type.isPrimitive() || type == boolean.class || type == char.class) {
+			return data;
+		}
+		int length = Array.getLength(data);
+		long bytes = (long) length * itemBytes(type);
+		if (bytes < limit || bytes > Integer.MAX_VALUE) {
+			return data;
+		}
+		ByteBuffer buffer;
+		try {
+			buffer = allocate((int) bytes);
+		} catch (IOException | OutOfMemoryError e) {
+			logger.warn("Could not allocate {} bytes off heap so keeping data on heap", bytes, e);
+			return data;
+		}
+		buffer.order(ByteOrder.nativeOrder());
+		if (type == byte.class) {
+			buffer.put((byte[]) data);
+		} else if (type == short.class) {
+			buffer.asShortBuffer().put((short[]) data);
+		} else if (type == int.class) {
+			buffer.asIntBuffer().put((int[]) data);
+		} else if (type == long.class) {
+			buffer.asLongBuffer().put((long[]) data);
+		} else if (type == float.class) {
+			buffer.asFloatBuffer().put((float[]) data);
+		} else {
+			buffer.asDoubleBuffer().put((double[]) data);
+		}
+		buffer.clear();
+		OffHeapBuffer stored = new OffHeapBuffer(type, length, buffer);
+		storedBytes.add(bytes);
+		storedCount.increment();
+		totalStoredBytes.add(bytes);
+		cleaner.register(stored, () -> {
+			storedBytes.add(-bytes);
+			storedCount.decrement();
+		});
+		return stored;
+	}
+
+	private static ByteBuffer allocate(int bytes) throws IOException {
+		if (!mapped) {
+			return ByteBuffer.allocateDirect(bytes);
+		}
+		Path file = Files.createTempFile("nexusGroupData", ".buf");
+		// the mapping stays valid after the channel is closed and the file deleted
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+		}
+	}
+
+	/**
+	 * @param type
+	 *            primitive type
+	 * @return number of bytes in an item of the type
+	 */
+	static int itemBytes(Class<?> type) {
+		if (type == byte.class || type == boolean.class) {
+			return Byte.BYTES;
+		} else if (type == short.class || type == char.class) {
+			return Short.BYTES;
+		} else if (type == int.class || type == float.class) {
+			return Integer.BYTES;
+		}
+		return Long.BYTES;
+	}
+
+	/**
+	 * @return copy of the values as an array on the heap
+	 */
+	Serializable toArray() {
+		ByteBuffer b = buffer.duplicate().order(ByteOrder.nativeOrder());
+		Serializable array;
+		if (type == byte.class) {
+			byte[] a = new byte[length];
+			b.get(a);
+			array = a;
+		} else if (type == short.class) {
+			short[] a = new short[length];
+			b.asShortBuffer().get(a);
+			array = a;
+		} else if (type == int.class) {
+			int[] a = new int[length];
+			b.asIntBuffer().get(a);
+			array = a;
+		} else if (type == long.class) {
+			long[] a = new long[length];
+			b.asLongBuffer().get(a);
+			array = a;
+		} else if (type == float.class) {
+			float[] a = new float[length];
+			b.asFloatBuffer().get(a);
+			array = a;
+		} else {
+			double[] a = new double[length];
+			b.asDoubleBuffer().get(a);
+			array = a;
+		}
+		copiedBytes.add((long) length * itemBytes(type));
+		return array;
+	}
+
+	/**
+	 * @param shape
+	 *            of the values
+	 * @param start
+	 *            of slab
+	 * @param stop
+	 *            of slab
+	 * @return copy of the items of the slab as an array on the heap
+	 */
+	Serializable slice(int[] shape, int[] start, int[] stop) {
+		int rank = shape.length;
+		int[] dims = new int[rank];
+		for (int i = 0; i < rank; i++) {
+			dims[i] = stop[i] - start[i];
+		}
+		int size = ShapeUtils.calcSize(dims);
+		Serializable array = (Serializable) Array.newInstance(type, size);
+		if (size == 0) {
+			return array;
+		}
+		// copy each run of items along the last dimension in one go
+		int run = rank == 0 ? 1 : dims[rank - 1];
+		int[] strides = new int[rank];
+		int stride = 1;
+		for (int i = rank - 1; i >= 0; i--) {
+			strides[i] = stride;
+			stride *= shape[i];
+		}
+		int[] pos = new int[rank];
+		Buffer from = values();
+		for (int to = 0; to < size; to += run) {
+			int offset = 0;
+			for (int i = 0; i < rank; i++) {
+				offset += (start[i] + pos[i]) * strides[i];
+			}
+			from.position(offset);
+			if (type == byte.class) {
+				((ByteBuffer) from).get((byte[]) array, to, run);
+			} else if (type == short.class) {
+				((ShortBuffer) from).get((short[]) array, to, run);
+			} else if (type == int.class) {
+				((IntBuffer) from).get((int[]) array, to, run);
+			} else if (type == long.class) {
+				((LongBuffer) from).get((long[]) array, to, run);
+			} else if (type == float.class) {
+				((FloatBuffer) from).get((float[]) array, to, run);
+			} else {
+				((DoubleBuffer) from).get((double[]) array, to, run);
+			}
+			for (int i = rank - 2; i >= 0; i--) {
+				if (++pos[i] < dims[i]) {
+					break;
+				}
+				pos[i] = 0;
+			}
+		}
+		copiedBytes.add((long) size * itemBytes(type));
+		return array;
+	}
+
+	/**
+	 * @return number of bytes held
+	 */
+	long getBytes() {
+		return (long) length * itemBytes(type);
+	}
+
+	/**
+	 * @return number of values held
+	 */
+	int size() {
+		return length;
+	}
+
+	/**
+	 * @return primitive type of the values
+	 */
+	Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * @return read-only view of the values as a buffer of their type, e.g. a DoubleBuffer for doubles
+	 */
+	Buffer values() {
+		ByteBuffer b = buffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+		b.clear();
+		if (type == byte.class) {
+			return b;
+		} else if (type == short.class) {
+			return b.asShortBuffer();
+		} else if (type == int.class) {
+			return b.asIntBuffer();
+		} else if (type == long.class) {
+			return b.asLongBuffer();
+		} else if (type == float.class) {
+			return b.asFloatBuffer();
+		}
+		return b.asDoubleBuffer();
+	}
+
+	/**
+	 * @param i
+	 * @return value at index, null if out of range
+	 */
+	Serializable get(int i) {
+		if (i < 0 || i >= length) {
+			return null;
+		}
+		ByteBuffer b = buffer.duplicate().order(ByteOrder.nativeOrder());
+		if (type == byte.class) {
+			return b.get(i);
+		} else if (type == short.class) {
+			return b.getShort(i * Short.BYTES);
+		} else if (type == int.class) {
+			return b.getInt(i * Integer.BYTES);
+		} else if (type == long.class) {
+			return b.getLong(i * Long.BYTES);
+		} else if (type == float.class) {
+			return b.getFloat(i * Float.BYTES);
+		}
+		return b.getDouble(i * Double.BYTES);
+	}
+
+	/**
+	 * @return hash code of the values, equal to that given by Arrays.hashCode for the array they were stored from
+	 */
+	int valuesHashCode() {
+		ByteBuffer b = buffer.duplicate().order(ByteOrder.nativeOrder());
+		int h = 1;
+		for (int i = 0; i < length; i++) {
+			int v;
+			if (type == byte.class) {
+				v = Byte.hashCode(b.get(i));
+			} else if (type == short.class) {
+				v = Short.hashCode(b.getShort(i * Short.BYTES));
+			} else if (type == int.class) {
+				v = Integer.hashCode(b.getInt(i * Integer.BYTES));
+			} else if (type == long.class) {
+				v = Long.hashCode(b.getLong(i * Long.BYTES));
+			} else if (type == float.class) {
+				v = Float.hashCode(b.getFloat(i * Float.BYTES));
+			} else {
+				v = Double.hashCode(b.getDouble(i * Double.BYTES));
+			}
+			h = 31 * h + v;
+		}
+		return h;
+	}
+
+	/**
+	 * @return the values are serialized as an array
+	 */
+	private Object writeReplace() {
+		return toArray();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof OffHeapBuffer))
+			return false;
+		OffHeapBuffer other = (OffHeapBuffer) obj;
+		return type == other.type && length == other.length && buffer.duplicate().clear().equals(other.buffer.duplicate().clear());
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * type.hashCode() + length;
+	}
+
+	/**
+	 * @return number of bytes currently held off heap rather than on the heap
+	 */
+	public static long getStoredBytes() {
+		return storedBytes.sum();
+	}
+
+	/**
+	 * @return number of buffers currently held off heap
+	 */
+	public static long getStoredCount() {
+		return storedCount.sum();
+	}
+
+	/**
+	 * @return total number of bytes that have been stored off heap
+	 */
+	public static long getTotalStoredBytes() {
+		return totalStoredBytes.sum();
+	}
+
+	/**
+	 * @return total number of bytes that have been copied back onto the heap
+	 */
+	public static long getCopiedBytes() {
+		return copiedBytes.sum();
+	}
+}
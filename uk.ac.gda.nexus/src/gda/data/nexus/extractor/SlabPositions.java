@@ -0,0 +1,119 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.extractor;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The start positions of the slabs that tile a dataset, in a given order of dimensions. Slabs at the end of a
+ * dimension are cut short to fit the dataset.
+ */
+final class SlabPositions {
+	private final int[] shape;
+	private final int[] slab;
+	private final int[] order;
+	private final long count;
+	private int[] next;
+
+	/**
+	 * @param shape
+	 *            of the dataset
+	 * @param slabShape
+	 *            shape of each slab, a value less than 1 takes the whole of that dimension
+	 * @param order
+	 *            dimensions from slowest to fastest varying, null for the order of the dimensions of the dataset
+	 */
+	SlabPositions(int[] shape, int[] slabShape, int[] order) {
+		int rank = shape.length;
+		if (slabShape.length != rank) {
+			throw new IllegalArgumentException("Slab shape must have length equal to dataset rank");
+		}
+		this.shape = shape.clone();
+		slab = new int[rank];
+		long n = 1;
+		for (int i = 0; i < rank; i++) {
+			slab[i] = slabShape[i] < 1 ? Math.max(shape[i], 1) : slabShape[i];
+			n *= (shape[i] + slab[i] - 1) / slab[i];
+		}
+		count = n;
+		if (order == null) {
+			this.order = new int[rank];
+			Arrays.setAll(this.order, i -> i);
+		} else {
+			int[] sorted = order.clone();
+			Arrays.sort(sorted);
+			boolean permutation = sorted.length == rank;
+			for (int i = 0; permutation && i < rank; i++) {
+				permutation = sorted[i] == i;
+			}
+			if (!permutation) {
+				throw new IllegalArgumentException("Order must be a permutation of the dimensions " + Arrays.toString(order));
+			}
+			this.order = order.clone();
+		}
+		next = count > 0 ? new int[rank] : null;
+	}
+
+	/**
+	 * @return number of slabs
+	 */
+	long getCount() {
+		return count;
+	}
+
+	boolean hasNext() {
+		return next != null;
+	}
+
+	/**
+	 * @return start position of next slab
+	 */
+	int[] next() {
+		if (next == null) {
+			throw new NoSuchElementException();
+		}
+		int[] start = next.clone();
+		int i = order.length - 1;
+		for (; i >= 0; i--) {
+			int d = order[i];
+			next[d] += slab[d];
+			if (next[d] < shape[d]) {
+				break;
+			}
+			next[d] = 0;
+		}
+		if (i < 0) {
+			next = null;
+		}
+		return start;
+	}
+
+	/**
+	 * @param start
+	 * @return shape of the slab at the given start position
+	 */
+	int[] getShape(int[] start) {
+		int[] s = new int[start.length];
+		for (int i = 0; i < s.length; i++) {
+			s[i] = Math.min(slab[i], shape[i] - start[i]);
+		}
+		return s;
+	}
+}
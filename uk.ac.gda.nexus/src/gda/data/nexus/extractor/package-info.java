@@ -34,6 +34,10 @@
  *      On completing an item NexusExtractor calls the endElement method.
  *      Whilst in the beginElement method the processor can call NexusExtractor.getDataForCurrentProcessedGroup to
  *      obtain the contains of the data in the current group.
+ *      The node of an SDS and its attributes are read from the file once per visit, and all its attributes can be
+ *      obtained together by calling getAttributesOfCurrentProcessedGroup.
+ *      A processor that only wants some items can also return an INexusChildFilter from getChildFilter so that
+ *      NexusExtractor does not read the items that cannot be wanted.
  *      
  * @see gda.data.nexus.tree.NexusTreeBuilder
  *      
@@ -0,0 +1,186 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Iterator;
+
+import org.eclipse.dawnsci.analysis.api.tree.Attribute;
+import org.eclipse.dawnsci.analysis.api.tree.DataNode;
+import org.eclipse.dawnsci.analysis.api.tree.GroupNode;
+import org.eclipse.dawnsci.analysis.api.tree.Node;
+import org.eclipse.dawnsci.analysis.api.tree.Tree;
+import org.eclipse.dawnsci.nexus.NexusConstants;
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.dawnsci.nexus.NexusFile;
+
+import gda.data.nexus.extractor.NexusExtractor;
+import gda.data.nexus.extractor.NexusFileCache;
+import gda.data.nexus.extractor.NexusGroupData;
+
+/**
+ * A node of a tree that is read from a Nexus file on demand. The children of a node are read the first time they
+ * are used (e.g. by iterator(), getChildNode or getNumberOfChildNodes) and the data of an SDS the first time getData
+ * is called. Both are then held by the node, so only the parts of the file that are navigated are ever read.
+ * <p>
+ * The file is read through the shared {@link NexusFileCache}. Like the trees made by NexusTreeBuilder the children
+ * of a group are its groups and SDSs followed by its attributes, and the children of an SDS are its attributes.
+ * <p>
+ * Only the nodes that have been read are serialized. A deserialized node is marked as loaded, so it never reads
+ * the file, which may not be reachable where it is deserialized: children and data not read before serialization
+ * are absent.
+ */
+public class LazyNexusTreeNode extends NexusTreeNode implements INexusSourceProvider {
+
+	private final URL source;
+	private final String path;
+	private final boolean withData;
+	private boolean childNodesLoaded;
+	private boolean dataLoaded;
+	private NexusGroupData data;
+
+	private LazyNexusTreeNode(String name, String nxClass, LazyNexusTreeNode parentNode, URL source, String path,
+			boolean withData) {
+		super(name, nxClass, parentNode);
+		this.source = source;
+		this.path = path;
+		this.withData = withData;
+	}
+
+	/**
+	 * Attribute node whose value is already known
+	 */
+	private LazyNexusTreeNode(String name, LazyNexusTreeNode parentNode, NexusGroupData value) {
+		this(name, NexusExtractor.AttrClassName, parentNode, parentNode.source, parentNode.path, false);
+		data = value;
+		dataLoaded = true;
+		childNodesLoaded = true;
+	}
+
+	/**
+	 * @param fileName
+	 * @param withData
+	 *            if true getData of an SDS reads its values, otherwise only its dimensions and type are read and
+	 *            the values can be read with NexusExtractor.getNexusGroupDataWithBuffer or getNexusGroupDataSlab
+	 * @return top node of a tree that reads the file on demand
+	 * @throws MalformedURLException
+	 */
+	public static LazyNexusTreeNode createTree(String fileName, boolean withData) throws MalformedURLException {
+		URL source = new URL("file:" + new File(fileName).getAbsolutePath());
+		return new LazyNexusTreeNode(NexusExtractor.topName, NexusExtractor.topClass, null, source, Tree.ROOT,
+				withData);
+	}
+
+	@Override
+	public URL getSource() {
+		return source;
+	}
+
+	private boolean isSDS() {
+		return NexusExtractor.SDSClassName.equals(nxClass);
+	}
+
+	@Override
+	public synchronized NexusGroupData getData() {
+		if (!dataLoaded && isSDS()) {
+			try (NexusFileCache.Handle handle = NexusFileCache.getInstance().acquire(source.getPath())) {
+				handle.lock();
+				try {
+					data = NexusExtractor.createNexusGroupData(handle.getFile().getData(path), withData);
+				} finally {
+					handle.unlock();
+				}
+			} catch (NexusException e) {
+				throw new IllegalStateException("Could not read data of " + path + " in " + source, e);
+			}
+		}
+		dataLoaded = true;
+		return data;
+	}
+
+	/**
+	 * Indexing would read the whole file
+	 */
+	@Override
+	protected boolean isTreeIndexed() {
+		return false;
+	}
+
+	@Override
+	protected synchronized void loadChildNodes() {
+		if (childNodesLoaded) {
+			return;
+		}
+		// set first as adding the children calls back here
+		childNodesLoaded = true;
+		try (NexusFileCache.Handle handle = NexusFileCache.getInstance().acquire(source.getPath())) {
+			handle.lock();
+			try {
+				NexusFile file = handle.getFile();
+				Node node;
+				if (isSDS()) {
+					DataNode d = file.getData(path);
+					node = d;
+				} else {
+					GroupNode g = file.getGroup(path, false);
+					Iterator<String> it = g.getNodeNameIterator();
+					while (it.hasNext()) {
+						String name = it.next();
+						String nxClass = NexusExtractor.getNXclass(g.getNodeLink(name));
+						addChildNode(new LazyNexusTreeNode(name, nxClass, this, source, childPath(name, nxClass), withData));
+					}
+					node = g;
+				}
+				Iterator<? extends Attribute> ait = node.getAttributeIterator();
+				while (ait.hasNext()) {
+					Attribute a = ait.next();
+					if (!NexusConstants.NXCLASS.equals(a.getName())) {
+						addChildNode(new LazyNexusTreeNode(a.getName(), this, NexusGroupData.createFromDataset(a.getValue())));
+					}
+				}
+			} finally {
+				handle.unlock();
+			}
+		} catch (NexusException e) {
+			throw new IllegalStateException("Could not read children of " + path + " in " + source, e);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		childNodesLoaded = true;
+		dataLoaded = true;
+	}
+
+	private String childPath(String name, String nxClass) {
+		StringBuilder childPath = new StringBuilder(path);
+		if (!path.endsWith(Node.SEPARATOR)) {
+			childPath.append(Node.SEPARATOR);
+		}
+		childPath.append(name);
+		if (!nxClass.isEmpty() && !NexusExtractor.SDSClassName.equals(nxClass)) {
+			childPath.append(NexusFile.NXCLASS_SEPARATOR).append(nxClass);
+		}
+		return childPath.toString();
+	}
+}
@@ -0,0 +1,336 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.dawnsci.nexus.NexusException;
+import org.eclipse.january.IMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gda.data.nexus.extractor.INexusChildFilter;
+import gda.data.nexus.extractor.INexusDataGetter;
+import gda.data.nexus.extractor.INexusTreeProcessor;
+import gda.data.nexus.extractor.INexusTreeProcessor.RESPONSE;
+import gda.data.nexus.extractor.NexusExtractor;
+import gda.data.nexus.extractor.NexusExtractorException;
+import gda.data.nexus.extractor.NexusGroupData;
+
+/**
+ * Index of the structure of a Nexus file, kept on disk so that trees of a finished file can be built without walking
+ * the file. The index holds the names, classes, dimensions and types of all the items of the file and the values of
+ * their attributes, including link targets, written by {@link NexusTreeCodec}. As an index may be written by anyone
+ * who can write next to the file, it is read only in the binary form and only arrays are read as data.
+ * <p>
+ * If the system property {@value #ENABLED_PROPERTY} is true, {@link NexusTreeBuilder} passes the items of the index to
+ * its processor in the order NexusExtractor would find them, and reads the file only for the values of an SDS. The
+ * index is made the first time a file is read and is held next to it as a hidden file, or in the directory given by
+ * {@value #DIRECTORY_PROPERTY}. An index is used only while the path, size and modification time of the file are
+ * those it was made from, so one made while a file is written is replaced once the file is finished.
+ */
+public final class NexusStructureIndex {
+	private static final Logger logger = LoggerFactory.getLogger(NexusStructureIndex.class);
+
+	/**
+	 * System property which, if true, makes trees from structure indexes (default false)
+	 */
+	public static final String ENABLED_PROPERTY = "gda.nexus.structureIndex.enabled";
+
+	/**
+	 * System property for the directory holding structure indexes (default the directory of each file)
+	 */
+	public static final String DIRECTORY_PROPERTY = "gda.nexus.structureIndex.dir";
+
+	private static final int MAGIC = 0x4e584958; // NXIX
+	private static final String SUFFIX = ".nxidx";
+
+	private static final NexusTreeCodec codec = new NexusTreeCodec();
+
+	private NexusStructureIndex() {
+	}
+
+	/**
+	 * @return true if trees are made from structure indexes
+	 */
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(ENABLED_PROPERTY);
+	}
+
+	/**
+	 * Pass the structure of the file to the processor from its index, making the index if there is none that is
+	 * current
+	 *
+	 * @param fileName
+	 * @param processor
+	 * @param debug
+	 *            - if true the file access is instrumented
+	 * @param mon
+	 * @return false if indexes are not enabled or the file could not be indexed, in which case the processor has not
+	 *         been called
+	 * @throws NexusException
+	 * @throws NexusExtractorException
+	 */
+	static boolean runLoop(String fileName, INexusTreeProcessor processor, boolean debug, IMonitor mon)
+			throws NexusException, NexusExtractorException {
+		if (!isEnabled()) {
+			return false;
+		}
+		INexusTree structure = read(fileName);
+		if (structure == null) {
+			structure = build(fileName, debug);
+			if (structure == null) {
+				return false;
+			}
+		}
+		replay(fileName, structure, processor, debug, mon);
+		return true;
+	}
+
+	/**
+	 * @param fileName
+	 * @return path of the index of the file
+	 */
+	static Path indexPath(String fileName) {
+		Path file = Paths.get(fileName).toAbsolutePath();
+		String dir = System.getProperty(DIRECTORY_PROPERTY);
+		if (dir == null || dir.isEmpty()) {
+			return file.resolveSibling("." + file.getFileName() + SUFFIX);
+		}
+		// the name of the file alone may not be unique
+		return Paths.get(dir).resolve(Integer.toHexString(file.toString().hashCode()) + "-" + file.getFileName() + SUFFIX);
+	}
+
+	/**
+	 * @param fileName
+	 * @return structure of the file from its index, or null if there is no index made from the file as it is now
+	 */
+	static INexusTree read(String fileName) {
+		Path file = Paths.get(fileName).toAbsolutePath();
+		Path index = indexPath(fileName);
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(index))) {
+			DataInputStream dis = new DataInputStream(in);
+			BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+			if (dis.readInt() != MAGIC || !dis.readUTF().equals(file.toString()) || dis.readLong() != attrs.size()
+					|| dis.readLong() != attrs.lastModifiedTime().toMillis()) {
+				logger.debug("Structure index {} is out of date", index);
+				return null;
+			}
+			return codec.readBinary(dis);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not read structure index {}", index, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the index of the file, replacing any there is
+	 *
+	 * @param fileName
+	 * @param attrs
+	 *            of the file when its structure was read
+	 * @param structure
+	 * @throws IOException
+	 */
+	static void write(String fileName, BasicFileAttributes attrs, INexusTree structure) throws IOException {
+		Path file = Paths.get(fileName).toAbsolutePath();
+		Path index = indexPath(fileName);
+		Files.createDirectories(index.getParent());
+		Path temp = Files.createTempFile(index.getParent(), index.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+				DataOutputStream dos = new DataOutputStream(out);
+				dos.writeInt(MAGIC);
+				dos.writeUTF(file.toString());
+				dos.writeLong(attrs.size());
+				dos.writeLong(attrs.lastModifiedTime().toMillis());
+				codec.write(structure, dos);
+			}
+			try {
+				Files.move(temp, index, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Read the structure of the file and write its index
+	 *
+	 * @return structure or null if the file could not be examined
+	 */
+	private static INexusTree build(String fileName, boolean debug) throws NexusException, NexusExtractorException {
+		Path file = Paths.get(fileName);
+		BasicFileAttributes before;
+		try {
+			before = Files.readAttributes(file, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+		NexusTreeBuilder builder = new NexusTreeBuilder(new NexusTreeNodeSelection(NexusExtractor.topName,
+				NexusExtractor.topClass, NexusTreeNodeSelection.GET_THIS_AND_BELOW, NexusTreeNodeSelection.NAME_AND_DIMS));
+		new NexusExtractor(fileName).runLoop(builder, debug);
+		INexusTree structure = builder.getTree();
+		try {
+			BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+			if (after.size() == before.size() && after.lastModifiedTime().equals(before.lastModifiedTime())) {
+				write(fileName, before, structure);
+			} else {
+				logger.debug("Not indexing {} as it changed while being read", fileName);
+			}
+		} catch (IOException e) {
+			logger.debug("Could not write structure index of {}", fileName, e);
+		}
+		return structure;
+	}
+
+	/**
+	 * Pass the items of the structure to the processor as NexusExtractor would pass those of the file
+	 *
+	 * @param fileName
+	 *            of file read for the values of an SDS
+	 * @param structure
+	 * @param processor
+	 * @param debug
+	 * @param mon
+	 * @throws NexusException
+	 * @throws NexusExtractorException
+	 */
+	static void replay(String fileName, INexusTree structure, INexusTreeProcessor processor, boolean debug,
+			IMonitor mon) throws NexusException, NexusExtractorException {
+		try {
+			new Replay(new URL("file:" + new File(fileName).getAbsolutePath()), processor, debug, mon).loop(structure);
+		} catch (MalformedURLException e) {
+			throw new NexusExtractorException("Error getting source", e);
+		}
+	}
+
+	private static final class Replay implements INexusDataGetter {
+		private final URL source;
+		private final INexusTreeProcessor processor;
+		private final boolean debug;
+		private final IMonitor mon;
+		private INexusTree current;
+
+		Replay(URL source, INexusTreeProcessor processor, boolean debug, IMonitor mon) {
+			this.source = source;
+			this.processor = processor;
+			this.debug = debug;
+			this.mon = mon;
+		}
+
+		RESPONSE loop(INexusTree node) throws NexusException, NexusExtractorException {
+			if (mon != null && mon.isCancelled()) {
+				return RESPONSE.NO_MORE;
+			}
+			current = node;
+			RESPONSE response = processor.beginElement(node.getName(), node.getNxClass(), this);
+			current = null;
+			if (response == RESPONSE.NO_MORE || response == RESPONSE.SKIP_OVER || response == RESPONSE.SDS_ATTR) {
+				if (response == RESPONSE.SDS_ATTR) {
+					loopChildren(node);
+					processor.endElement();
+				}
+				return RESPONSE.SKIP_OVER;
+			}
+			if (loopChildren(node) == RESPONSE.NO_MORE) {
+				response = RESPONSE.NO_MORE;
+			}
+			processor.endElement();
+			return response;
+		}
+
+		/**
+		 * The children of a node are in the order they were found in the file, groups and datasets before attributes
+		 */
+		private RESPONSE loopChildren(INexusTree node) throws NexusException, NexusExtractorException {
+			INexusChildFilter filter = processor.getChildFilter();
+			int n = node.getNumberOfChildNodes();
+			for (int i = 0; i < n; i++) {
+				INexusTree child = node.getChildNode(i);
+				if (filter != null && !filter.mayMatch(child.getName(), child.getNxClass())) {
+					continue;
+				}
+				if (loop(child) == RESPONSE.NO_MORE) {
+					return RESPONSE.NO_MORE;
+				}
+			}
+			return RESPONSE.GO_INTO;
+		}
+
+		@Override
+		public NexusGroupData getDataForCurrentProcessedGroup(String name, String nxClass, boolean getData)
+				throws NexusException, NexusExtractorException {
+			if (current == null || !current.getName().equals(name) || !current.getNxClass().equals(nxClass)) {
+				throw new NexusExtractorException("getDataForCurrentProcessedGroup being called out of sequence");
+			}
+			if (!getData || NexusExtractor.AttrClassName.equals(nxClass)) {
+				return current.getData();
+			}
+			return NexusExtractor.getNexusGroupData(source, current.getNodePathWithClasses(), null, null, debug);
+		}
+
+		@Override
+		public NexusGroupData getAttributeOfCurrentProcessedGroup(String attrName) {
+			INexusTree attr = current.getChildNode(attrName, NexusExtractor.AttrClassName);
+			return attr == null ? null : attr.getData();
+		}
+
+		@Override
+		public Map<String, NexusGroupData> getAttributesOfCurrentProcessedGroup() throws NexusExtractorException {
+			if (current == null) {
+				throw new NexusExtractorException("getAttributesOfCurrentProcessedGroup being called out of sequence");
+			}
+			Map<String, NexusGroupData> values = new LinkedHashMap<>();
+			for (INexusTree child : current) {
+				if (NexusExtractor.AttrClassName.equals(child.getNxClass())) {
+					values.put(child.getName(), child.getData());
+				}
+			}
+			return values;
+		}
+
+		@Override
+		public URL getSourceId() {
+			return source;
+		}
+	}
+}
@@ -19,43 +19,66 @@
 package gda.data.nexus.tree;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.net.MalformedURLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.dawnsci.nexus.NexusException;
 import org.eclipse.january.IMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gda.data.nexus.extractor.INexusChildFilter;
 import gda.data.nexus.extractor.INexusDataGetter;
-import gda.data.nexus.extractor.INexusTreeProcessor;
+import gda.data.nexus.extractor.IParallelNexusTreeProcessor;
 import gda.data.nexus.extractor.NexusExtractor;
 import gda.data.nexus.extractor.NexusExtractorException;
 import gda.data.nexus.extractor.NexusGroupData;
 /**
  *
  */
-public class NexusTreeBuilder implements INexusTreeProcessor {
+public class NexusTreeBuilder implements IParallelNexusTreeProcessor {
 
 	private static final Logger logger = LoggerFactory.getLogger(NexusTreeBuilder.class);
-	NexusTreeNodeSelection currentSelectedNode = null;
 	INexusTree parentNode = null;
-	final NexusTreeNodeSelection selectionTree;
+	final NexusTreeNodeMatcher matcher;
+	/**
+	 * match states of parentNode and its ancestors
+	 */
+	final Deque<NexusTreeNodeMatcher.State> states = new ArrayDeque<>();
 	INexusTree tree;
 	TREE_CONTENTS requiredContents;
 
 	NexusTreeBuilder(TREE_CONTENTS requiredContents) {
 		this.requiredContents = requiredContents;
-		selectionTree = null;
+		matcher = null;
 	}
 
 	NexusTreeBuilder(NexusTreeNodeSelection selectionTree) {
-		this.selectionTree = selectionTree;
-		currentSelectedNode = selectionTree;
+		matcher = selectionTree == null ? null : new NexusTreeNodeMatcher(selectionTree);
+	}
+
+	/**
+	 * Builder for an independent subtree whose nodes are attached to a detached copy of parent
+	 * so that they can be matched against the selection exactly as if attached to parent
+	 */
+	private NexusTreeBuilder(NexusTreeBuilder parent) {
+		requiredContents = parent.requiredContents;
+		matcher = parent.matcher;
+		if (!parent.states.isEmpty()) {
+			states.push(parent.states.peek());
+		}
+		targetNodes = parent.targetNodes;
+		INexusTree node = parent.parentNode;
+		parentNode = new NexusTreeNode(node.getName(), node.getNxClass(), null);
 	}
 
 	/*
@@ -66,38 +89,42 @@ public class NexusTreeBuilder implements INexusTreeProcessor {
 	 * first check if this item is wanted as expressed in the selection tree - calling match
 	 * if not wanted (skip) then return skip
 	 * if wanted created a node and add to the tree. If SDS or Attr the  read the data into the node
+	 * the attributes of an SDS are all read at once when the SDS is found if the getter can do so, in which case
+	 * SDS returns SKIP as it has no other children, otherwise SDS returns SDS_ATTR to be given its attributes
 	 * if Attr return SKIP as attributes cannot have children
 	 */
 	@Override
 	public RESPONSE beginElement(String name, String nxClass,
 			INexusDataGetter nexusDataGetter) throws NexusException,
 			NexusExtractorException {
-		INexusTree treeNode = new NexusTreeNode(name, nxClass, parentNode, null);
-		NexusTreeNodeSelection thismatch = match(currentSelectedNode, treeNode);
+		NexusTreeNodeMatcher.State state = match(name, nxClass);
+		NexusTreeNodeSelection thismatch = state == null ? match(nxClass) : state.getSelection();
 		RESPONSE response = RESPONSE.SKIP_OVER;
 		if (!thismatch.isSkip()) {
 			response = RESPONSE.GO_INTO;
 			//we are keeping this one so add in the attributes
-			treeNode = new NexusTreeNode(name, nxClass, parentNode, null);
+			INexusTree treeNode = new NexusTreeNode(name, nxClass, parentNode, null);
 			boolean isAttr =  nxClass.equals(NexusExtractor.AttrClassName);
 			boolean isSDS = nxClass.equals(NexusExtractor.SDSClassName);
+			Map<String, NexusGroupData> attributes = null;
 			if ( isSDS || isAttr){
 				//if SDS or attr then read using getDataForCurrentProcessedGroup.
 				if (parentNode == null) {
 					throw new NexusExtractorException("NexusTreeProcessor.begin - no parent found for SDS or Attr element.");
 				}
-				if(isAttr)
-					response = RESPONSE.SKIP_OVER; // attributes cannot have children so always skip over
-				else
-					response = RESPONSE.SDS_ATTR; //  SDS can have attributes.
-
-
+				// attributes cannot have children so always skip over
+				response = RESPONSE.SKIP_OVER;
 
 				NexusGroupData nexusGroupData = null;
 				String targetVal=null;
 				if( !isAttr){
+					attributes = nexusDataGetter.getAttributesOfCurrentProcessedGroup();
+					if (attributes == null) {
+						response = RESPONSE.SDS_ATTR; //  SDS can have attributes.
+					}
 					//Look for target attribute
-					NexusGroupData data = nexusDataGetter.getAttributeOfCurrentProcessedGroup("target");
+					NexusGroupData data = attributes == null ? nexusDataGetter.getAttributeOfCurrentProcessedGroup("target")
+							: attributes.get("target");
 					if( data != null && data.isChar() && data.getBuffer() != null){
 						//this is a link so look in targetNodes
 						//note that both ends of the link have the target attribute so if the value has already
@@ -109,7 +136,7 @@ public class NexusTreeBuilder implements INexusTreeProcessor {
 				}
 				if( nexusGroupData == null){
 					nexusGroupData = nexusDataGetter.getDataForCurrentProcessedGroup(name, nxClass, isAttr || thismatch.isGetData());
-					if( targetVal != null)
+					if( targetVal != null && nexusGroupData != null)
 						targetNodes.put(targetVal, nexusGroupData);
 				}
 				treeNode = new NexusTreeNode(name, nxClass, parentNode, nexusGroupData);
@@ -124,24 +151,79 @@ public class NexusTreeBuilder implements INexusTreeProcessor {
 					throw new NexusExtractorException("Error getting source", e);
 				}
 			}
-			if(!isAttr ){
+			if (attributes != null) {
+				addAttributes(treeNode, state, attributes);
+			} else if(!isAttr ){
 				//attributes are always skipped over ( have no children) so do not set parentNode
 				parentNode = treeNode;
+				if (state != null) {
+					states.push(state);
+				}
 			}
 		}
 		return response;
 	}
 
+	/**
+	 * Add the wanted attributes of an SDS to its node
+	 *
+	 * @param sdsNode
+	 * @param sdsState
+	 *            match state of the SDS or null if not matching against a selection tree
+	 * @param attributes
+	 *            values of all the attributes of the SDS by name
+	 */
+	private void addAttributes(INexusTree sdsNode, NexusTreeNodeMatcher.State sdsState,
+			Map<String, NexusGroupData> attributes) {
+		for (Map.Entry<String, NexusGroupData> e : attributes.entrySet()) {
+			// without a selection tree everything below a wanted child of the top is wanted, see match(String)
+			if (sdsState == null || sdsState.mayMatch(e.getKey(), NexusExtractor.AttrClassName)) {
+				sdsNode.addChildNode(new NexusTreeNode(e.getKey(), NexusExtractor.AttrClassName, sdsNode, e.getValue()));
+			}
+		}
+	}
+
 	/* To support the concept of links that are expressed as attributes called target we hold onto all those NexusGroupData items that are to be added into the tree
 	 * more than once.
 	 * note that both ends of the link have the target attribute so if the value has already
 	 * been read then it will be in the targetNodes
 	 */
-	Map<String, NexusGroupData > targetNodes = new HashMap<>();
+	Map<String, NexusGroupData > targetNodes = new ConcurrentHashMap<>();
 
 	@Override
 	public void endElement() {
 		parentNode = parentNode.getParentNode();
+		if (matcher != null) {
+			states.pop();
+		}
+	}
+
+	/*
+	 * children that cannot match the selection tree need not be read
+	 */
+	@Override
+	public INexusChildFilter getChildFilter() {
+		return states.peek();
+	}
+
+	@Override
+	public IParallelNexusTreeProcessor fork() {
+		return new NexusTreeBuilder(this);
+	}
+
+	/*
+	 * move the nodes built by the subtree builder from its detached parent to the real one
+	 */
+	@Override
+	public void join(IParallelNexusTreeProcessor subtreeProcessor) {
+		INexusTree detached = ((NexusTreeBuilder) subtreeProcessor).parentNode;
+		List<INexusTree> children = new ArrayList<>(detached.getNumberOfChildNodes());
+		for (INexusTree child : detached) {
+			children.add(child);
+		}
+		for (INexusTree child : children) {
+			parentNode.addChildNode(child);
+		}
 	}
 
 	/**
@@ -157,12 +239,32 @@ public class NexusTreeBuilder implements INexusTreeProcessor {
 	}
 
 	/**
-	 * NOTE: this is synchronized otherwise the thread test fails.
-	 * The addition of synchronized keyword on the static method in NexusTreeBuilder is not the
-	 * correct thing to do as it block concurrent use of that static method on different
-	 * files as well as the same file. If the nexus api does not allow concurrent access to
-	 * the  file then the locking should be done in NexusFile.
+	 * NOTE: concurrent calls for the same file take turns as the extractor locks the file handle
+	 * for the duration of the read (see NexusFileCache). Calls for different files run in parallel.
+	 * <p>
+	 * If enabled, the structure of the file is taken from its index, see {@link NexusStructureIndex}.
+	 *
+	 * @param fileName
+	 * @param selectionTree
+	 * @param mon
+	 * @return The tree of selected items from the nexus file @see NexusTreeNode
+	 * @throws NexusException
+	 * @throws NexusExtractorException
+	 */
+	public static INexusTree getNexusTree(String fileName, NexusTreeNodeSelection selectionTree, final IMonitor mon) throws NexusException, NexusExtractorException {
+		NexusTreeBuilder proc = new NexusTreeBuilder(selectionTree);
+		boolean debug = System.getProperty("gda.nexus.instrumentApi") != null;
+		if (!NexusStructureIndex.runLoop(fileName, proc, debug, mon)) {
+			new NexusExtractor(fileName).runLoop(proc, debug, mon);
+		}
+		return proc.getTree();
+	}
+
+	/**
+	 * As {@link #getNexusTree(String, NexusTreeNodeSelection, IMonitor)} but the top level groups of the file
+	 * (e.g. the NXentry groups of a multi-entry file) are read and built in parallel
 	 *
+	 * @see NexusExtractor#runLoopParallel
 	 * @param fileName
 	 * @param selectionTree
 	 * @param mon
@@ -170,13 +272,99 @@ public class NexusTreeBuilder implements INexusTreeProcessor {
 	 * @throws NexusException
 	 * @throws NexusExtractorException
 	 */
-	public static synchronized INexusTree getNexusTree(String fileName, NexusTreeNodeSelection selectionTree, final IMonitor mon) throws NexusException, NexusExtractorException {
-		NexusExtractor extractor =  new NexusExtractor(fileName);
+	public static INexusTree getNexusTreeParallel(String fileName, NexusTreeNodeSelection selectionTree, final IMonitor mon) throws NexusException, NexusExtractorException {
 		NexusTreeBuilder proc = new NexusTreeBuilder(selectionTree);
-		extractor.runLoop(proc, System.getProperty("gda.nexus.instrumentApi") != null, mon);
+		boolean debug = System.getProperty("gda.nexus.instrumentApi") != null;
+		if (!NexusStructureIndex.runLoop(fileName, proc, debug, mon)) {
+			new NexusExtractor(fileName).runLoopParallel(proc, debug, mon);
+		}
 		return proc.getTree();
 	}
 
+	/**
+	 * Get a tree that reads the file as it is navigated rather than all at once. Use this rather than getNexusTree
+	 * when only a few nodes of a large file are needed.
+	 *
+	 * @see LazyNexusTreeNode
+	 * @param fileName
+	 * @param withData
+	 *            if true the values of an SDS are read when getData is called, otherwise only its dimensions and type
+	 * @return top node of the tree
+	 * @throws MalformedURLException
+	 */
+	public static INexusTree getLazyNexusTree(String fileName, boolean withData) throws MalformedURLException {
+		return LazyNexusTreeNode.createTree(fileName, withData);
+	}
+
+	/**
+	 * System property for the maximum number of trees built at the same time by {@link #getNexusTreeAsync}
+	 */
+	public static final String CONCURRENCY_PROPERTY = "gda.nexus.treeBuilder.concurrency";
+
+	private static ExecutorService executor;
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			int limit = Integer.getInteger(CONCURRENCY_PROPERTY, Math.min(4, Runtime.getRuntime().availableProcessors()));
+			AtomicInteger count = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(Math.max(1, limit), r -> {
+				Thread t = new Thread(r, "NexusTreeBuilder-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Build the tree on a bounded pool of threads so the caller is not blocked. At most
+	 * {@value #CONCURRENCY_PROPERTY} trees (default 4 or the number of processors if fewer) are built at once;
+	 * further requests wait in turn.
+	 * <p>
+	 * Cancelling the future stops the build as cancelling the monitor would, at the next item of the file.
+	 *
+	 * @param fileName
+	 * @param selectionTree
+	 * @param mon
+	 * @return future that completes with the tree of selected items from the nexus file, or exceptionally with
+	 *         whatever was thrown while reading it
+	 */
+	public static CompletableFuture<INexusTree> getNexusTreeAsync(String fileName, NexusTreeNodeSelection selectionTree, final IMonitor mon) {
+		CompletableFuture<INexusTree> future = new CompletableFuture<>();
+		IMonitor monitor = new IMonitor() {
+			@Override
+			public void worked(int amount) {
+				if (mon != null) {
+					mon.worked(amount);
+				}
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return future.isCancelled() || (mon != null && mon.isCancelled());
+			}
+
+			@Override
+			public void subTask(String taskName) {
+				if (mon != null) {
+					mon.subTask(taskName);
+				}
+			}
+		};
+		getExecutor().execute(() -> {
+			if (future.isCancelled()) {
+				return;
+			}
+			try {
+				future.complete(getNexusTree(fileName, selectionTree, monitor));
+			} catch (Throwable e) {
+				// including errors, e.g. running out of memory, so that the caller is not left waiting
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
 	/**
 	 * @param fileName
 	 * @param nexusSelectionFilename
@@ -232,10 +420,12 @@ public class NexusTreeBuilder implements INexusTreeProcessor {
 	 * @throws Exception
 	 */
 	public static INexusTree getNexusTree(String fileName, TREE_CONTENTS requiredContents) throws Exception{
-		NexusExtractor extractor =  new NexusExtractor(fileName);
 		NexusTreeBuilder proc = new NexusTreeBuilder(requiredContents);
+		boolean debug = System.getProperty("gda.nexus.instrumentApi") != null;
 		try{
-			extractor.runLoop(proc, System.getProperty("gda.nexus.instrumentApi") != null);
+			if (!NexusStructureIndex.runLoop(fileName, proc, debug, null)) {
+				new NexusExtractor(fileName).runLoop(proc, debug);
+			}
 		} catch (Exception e){
 			String msg = proc.getTree() != null ? proc.getTree().toString() : "tree empty";
 			throw new Exception("Error in getNexusTree for file=" + fileName + ". Tree = "+msg,e);
@@ -246,139 +436,28 @@ public class NexusTreeBuilder implements INexusTreeProcessor {
 		return tree;
 	}
 
-	private NexusTreeNodeSelection match(NexusTreeNodeSelection selectionTree, INexusTree treeNode) {
-		if(requiredContents != null){
-			//if using the requiredContents rather than selectionTree
-			NexusTreeNodeSelection match=NexusTreeNodeSelection.SKIP;
-			if (requiredContents == TREE_CONTENTS.ALL){
-				match = NexusTreeNodeSelection.GET_ALL;
-			} else {
-				//get top item and check if NXEntry class
-				INexusTree node = treeNode;
-				INexusTree childOfTop=node;
-				while (node.getParentNode()!= null) {
-					childOfTop = node;
-					node = node.getParentNode();
-				}
-				if( !(node.getNxClass().equals(NexusExtractor.topClass) && node.getName().equals(NexusExtractor.topName)) ){
-					logger.error("top node is not correct");
-				} else if( childOfTop == node) {
-					match = NexusTreeNodeSelection.GET_ALL;
-				} else if(requiredContents == TREE_CONTENTS.ALLNXENTRY && childOfTop.getNxClass().equals(NexusExtractor.NXEntryClassName)){
-					match = NexusTreeNodeSelection.GET_ALL;
-				}
-			}
-			return match;
-		}
-		if (selectionTree == null)
-			return NexusTreeNodeSelection.GET_ALL;
-		INexusTree node = treeNode;
-		/*
-		 * Build up complete path to current node
-		 */
-		LinkedList<Group> path = new LinkedList<Group>();
-		path.add(new Group(node));
-		while (node.getParentNode()!= null) {
-			node = node.getParentNode();
-			path.add(new Group(node));
-		}
-		Iterator<Group> iter = path.descendingIterator();
-
-		//construct a list of NexusTreeNodeSelection that just contains the top item so that the
-		//whole tree can be walked through using
-		// for (NexusTreeNodeSelection selectionNode : selectionNodes){
-		//  selectionNodes = selectionNode.getChildNodes();
-		// }
-		List<NexusTreeNodeSelection> selectionNodes;
-		{
-			Vector<NexusTreeNodeSelection> selectionNodesV = new Vector<NexusTreeNodeSelection>();
-			selectionNodesV.add(selectionTree);
-			selectionNodes = selectionNodesV;
-		}
-
-		/*
-		 * iterate along the path to the current location - at each point check if it is wanted
-		 * the iteration ends when the end of selection tree is reached
-		 */
-		// now look for it in selectionTree
-		NexusTreeNodeSelection match = NexusTreeNodeSelection.SKIP; //if not found then skip over
-		while (iter.hasNext()) {
-			Group item = iter.next();
-			if (!match.isGetThisAndBelow())
-				match = NexusTreeNodeSelection.SKIP;
-			for (NexusTreeNodeSelection selectionNode : selectionNodes) {
-				if (selectionNode.MatchesNXClass(item.NXclass)) {
-					//find a node in selection tree that matches current node in path
-					if (selectionNode.MatchesName(item.name)) {
-						//if the names match then set current match to the match at that point
-						// and move down selection tree for next point on the path
-						// use this node for the next iteration
-						match = selectionNode;
-						selectionNodes = selectionNode.getChildNodes();
-						break;
-					}
-				}
-				//if no match found for NXClass and name then check next node at this level of the selection tree
-			}
-			//if no match found for NXClass and name then check next node at this level of the selection tree
-			if (match.isSkip()){
-				//if the match at this point on the path is skip then escape
-				break;
-			}
+	/**
+	 * @return state of a node from the state of its parent or null if not matching against a selection tree
+	 */
+	private NexusTreeNodeMatcher.State match(String name, String nxClass) {
+		if (matcher == null) {
+			return null;
 		}
-		return match;
+		NexusTreeNodeMatcher.State parentState = states.isEmpty() ? matcher.start : states.peek();
+		return parentState.next(name, nxClass);
 	}
-}
-
-class Group {
 
-	public static Group getInstance(Group source) {
-		return new Group(source.name, source.NXclass);
-	}
-
-	final String name;
-	final String NXclass;
-
-	public Group(String name, String NXclass) {
-		this.name = name;
-		this.NXclass = NXclass;
-	}
-	public Group(INexusTree node) {
-		this.name = node.getName();
-		this.NXclass = node.getNxClass();
-	}
-
-	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((NXclass == null) ? 0 : NXclass.hashCode());
-		result = prime * result + ((name == null) ? 0 : name.hashCode());
-		return result;
-	}
-
-	@Override
-	public boolean equals(Object o) {
-		if (o == this) {
-			return true;
+	/**
+	 * @return selection of a node for the requiredContents or everything if neither that nor a selection tree is set
+	 */
+	private NexusTreeNodeSelection match(String nxClass) {
+		if (requiredContents == null || requiredContents == TREE_CONTENTS.ALL || parentNode == null) {
+			return NexusTreeNodeSelection.GET_ALL;
 		}
-		if (!(o instanceof Group)) {
-			return false;
+		if (parentNode.getParentNode() != null) {
+			// only reached below a wanted child of the top
+			return NexusTreeNodeSelection.GET_ALL;
 		}
-		Group other = (Group) o;
-		return name.equals(other.name) && NXclass.equals(other.NXclass);
-	}
-
-	public String getName() {
-		return name;
-	}
-
-	public String getNXclass() {
-		return NXclass;
-	}
-
-	@Override
-	public String toString() {
-		return name + "." + NXclass;
+		return nxClass.equals(NexusExtractor.NXEntryClassName) ? NexusTreeNodeSelection.GET_ALL : NexusTreeNodeSelection.SKIP;
 	}
 }
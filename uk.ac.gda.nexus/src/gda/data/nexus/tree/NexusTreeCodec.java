@@ -0,0 +1,312 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.StreamCorruptedException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gda.data.nexus.extractor.NexusGroupData;
+
+/**
+ * Writes and reads trees, e.g. those of a {@link NexusTreeProvider}, in a compact binary form that is much quicker to
+ * make and read than Java serialization. Each name and class is written once per stream and then referred to by
+ * number, and the data of each node is written as given by {@link NexusGroupData#write}, with arrays of numbers
+ * written in blocks and, if wanted, compressed.
+ * <p>
+ * Java serialization remains available as an encoding so that a stream can be read by code that does not use this
+ * class, and {@link #read(InputStream)} reads either form.
+ * <p>
+ * Trees are read as NexusTreeNodes, keeping NexusTreeScanDataLeaf nodes and the source of NexusTreeTopNodes.
+ */
+public final class NexusTreeCodec {
+
+	/**
+	 * Forms in which trees are written
+	 */
+	public enum Encoding {
+		/**
+		 * Binary form
+		 */
+		BINARY,
+		/**
+		 * Binary form with large arrays of numbers compressed with deflate
+		 */
+		DEFLATE,
+		/**
+		 * Java serialization, for readers that do not use this class
+		 */
+		JAVA
+	}
+
+	private static final int MAGIC = 0x4e58; // NX
+	private static final int JAVA_MAGIC = 0xaced;
+	private static final int VERSION = 1;
+
+	private static final int NODE = 0;
+	private static final int SCAN_DATA_LEAF = 1;
+	private static final int TOP_NODE = 2;
+
+	private static final int POINT_DEPENDENT = 1;
+	private static final int HAS_DATA = 2;
+
+	private final Encoding encoding;
+
+	/**
+	 * Codec writing the binary form without compression
+	 */
+	public NexusTreeCodec() {
+		this(Encoding.BINARY);
+	}
+
+	/**
+	 * @param encoding
+	 *            form in which trees are written
+	 */
+	public NexusTreeCodec(Encoding encoding) {
+		this.encoding = encoding;
+	}
+
+	/**
+	 * @param tree
+	 * @return bytes of tree
+	 * @throws IOException
+	 */
+	public byte[] encode(INexusTree tree) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(tree, bytes);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param bytes
+	 * @return tree
+	 * @throws IOException
+	 */
+	public INexusTree decode(byte[] bytes) throws IOException {
+		return read(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Write tree to stream, which is flushed but not closed
+	 *
+	 * @param tree
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(INexusTree tree, OutputStream out) throws IOException {
+		if (encoding == Encoding.JAVA) {
+			ObjectOutputStream oos = new ObjectOutputStream(out);
+			oos.writeObject(tree);
+			oos.flush();
+			return;
+		}
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+		dos.writeShort(MAGIC);
+		dos.writeByte(VERSION);
+		new Writer(dos, encoding == Encoding.DEFLATE).write(tree);
+		dos.flush();
+	}
+
+	/**
+	 * Read a tree written in any encoding. More bytes than the tree may be read from the stream. Java serialization
+	 * can make any object, so read only trusted streams
+	 *
+	 * @param in
+	 * @return tree
+	 * @throws IOException
+	 */
+	public INexusTree read(InputStream in) throws IOException {
+		return read(in, true);
+	}
+
+	/**
+	 * Read a tree written in the binary form, rejecting Java serialization, e.g. for a stream from a file anyone may
+	 * have written
+	 *
+	 * @param in
+	 * @return tree
+	 * @throws IOException
+	 */
+	INexusTree readBinary(InputStream in) throws IOException {
+		return read(in, false);
+	}
+
+	private INexusTree read(InputStream in, boolean java) throws IOException {
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(in));
+		int magic = dis.readUnsignedShort();
+		if (magic == JAVA_MAGIC && java) {
+			byte[] head = { (byte) (JAVA_MAGIC >> 8), (byte) JAVA_MAGIC };
+			try {
+				// not closed so that the stream given is left open
+				ObjectInputStream ois = new ObjectInputStream(new SequenceInputStream(new ByteArrayInputStream(head), dis));
+				return (INexusTree) ois.readObject();
+			} catch (ClassNotFoundException | ClassCastException e) {
+				throw new IOException("Could not read tree", e);
+			}
+		}
+		if (magic != MAGIC) {
+			throw new StreamCorruptedException("Not a tree");
+		}
+		int version = dis.readUnsignedByte();
+		if (version != VERSION) {
+			throw new StreamCorruptedException("Unsupported version " + version);
+		}
+		return new Reader(dis).read(null);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Bad variable length integer");
+	}
+
+	private static final class Writer {
+		private final DataOutputStream out;
+		private final boolean deflate;
+		/**
+		 * Numbers of the strings written so far, from 1
+		 */
+		private final Map<String, Integer> strings = new HashMap<>();
+
+		Writer(DataOutputStream out, boolean deflate) {
+			this.out = out;
+			this.deflate = deflate;
+		}
+
+		void write(INexusTree node) throws IOException {
+			URL source = node instanceof NexusTreeTopNode ? ((NexusTreeTopNode) node).getSource() : null;
+			out.writeByte(source != null ? TOP_NODE : node instanceof NexusTreeScanDataLeaf ? SCAN_DATA_LEAF : NODE);
+			writeString(node.getName());
+			writeString(node.getNxClass());
+			NexusGroupData data = node.getData();
+			out.writeByte((node.isPointDependent() ? POINT_DEPENDENT : 0) | (data != null ? HAS_DATA : 0));
+			if (source != null) {
+				out.writeUTF(source.toString());
+			}
+			if (data != null) {
+				data.write(out, deflate);
+			}
+			int n = node.getNumberOfChildNodes();
+			writeVarInt(out, n);
+			for (int i = 0; i < n; i++) {
+				write(node.getChildNode(i));
+			}
+		}
+
+		/**
+		 * Write the number of a string already written, or 0 and the string
+		 */
+		private void writeString(String s) throws IOException {
+			Integer number = strings.get(s);
+			if (number != null) {
+				writeVarInt(out, number);
+				return;
+			}
+			writeVarInt(out, 0);
+			if (s == null) {
+				out.writeBoolean(false);
+			} else {
+				out.writeBoolean(true);
+				out.writeUTF(s);
+			}
+			strings.put(s, strings.size() + 1);
+		}
+	}
+
+	private static final class Reader {
+		private final DataInputStream in;
+		private final List<String> strings = new ArrayList<>();
+
+		Reader(DataInputStream in) {
+			this.in = in;
+		}
+
+		NexusTreeNode read(INexusTree parent) throws IOException {
+			int kind = in.readUnsignedByte();
+			String name = readString();
+			String nxClass = readString();
+			int flags = in.readUnsignedByte();
+			URL source = kind == TOP_NODE ? new URL(in.readUTF()) : null;
+			NexusGroupData data = (flags & HAS_DATA) != 0 ? NexusGroupData.read(in) : null;
+			NexusTreeNode node;
+			if (kind == TOP_NODE) {
+				node = new NexusTreeTopNode(new NexusTreeNode(name, nxClass, parent, data), source);
+			} else if (kind == SCAN_DATA_LEAF) {
+				node = new NexusTreeScanDataLeaf(name, parent, data);
+			} else if (kind == NODE) {
+				node = new NexusTreeNode(name, nxClass, parent, data);
+			} else {
+				throw new StreamCorruptedException("Unknown node kind " + kind);
+			}
+			node.setIsPointDependent((flags & POINT_DEPENDENT) != 0);
+			int n = readVarInt(in);
+			if (n > 0) {
+				List<INexusTree> children = new ArrayList<>(n);
+				for (int i = 0; i < n; i++) {
+					children.add(read(node));
+				}
+				node.addChildNodes(children);
+			}
+			return node;
+		}
+
+		private String readString() throws IOException {
+			int number = readVarInt(in);
+			if (number > 0) {
+				if (number > strings.size()) {
+					throw new StreamCorruptedException("Unknown string " + number);
+				}
+				return strings.get(number - 1);
+			}
+			String s = in.readBoolean() ? in.readUTF() : null;
+			strings.add(s);
+			return s;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import gda.data.nexus.extractor.NexusGroupData;
+
+/**
+ * Writes a tree as XML or text, in the forms given by {@link INexusTree#toXML} and {@link INexusTree#toText}, to an
+ * Appendable such as a Writer in one pass, so the output is never held in memory. The number of values written for
+ * each data item can be limited, the rest being replaced by ..., so that a tree of any size can be written with the
+ * memory used bounded by the depth of the tree.
+ */
+public final class NexusTreeExporter {
+
+	private final int maxValues;
+
+	/**
+	 * Exporter that writes all values
+	 */
+	public NexusTreeExporter() {
+		this(-1);
+	}
+
+	/**
+	 * @param maxValues
+	 *            maximum number of values written for each data item, less than 0 to write all values
+	 */
+	public NexusTreeExporter(int maxValues) {
+		this.maxValues = maxValues;
+	}
+
+	/**
+	 * @param tree
+	 * @param newlineAfterEach
+	 *            - if true the output is interspersed with newlines to make it more humanly readable
+	 * @param dataAsString
+	 *            - if true data array are written as string. NX_CHAR data is always shown as a string
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeXML(INexusTree tree, boolean newlineAfterEach, boolean dataAsString, Appendable out)
+			throws IOException {
+		writeXMLbegin(tree, newlineAfterEach, dataAsString, out);
+		writeXMLend(tree, newlineAfterEach, out);
+	}
+
+	/**
+	 * Write the start of the element for a node, its data and its child nodes
+	 */
+	void writeXMLbegin(INexusTree node, boolean newlineAfterEach, boolean dataAsString, Appendable out)
+			throws IOException {
+		out.append('<');
+		out.append(node.getParentNode() == null ? "top" : node.getNxClass());
+		out.append(" @name=").append(node.getName());
+		out.append('>');
+		if (newlineAfterEach) {
+			out.append('\n');
+		}
+
+		NexusGroupData data = node.getData();
+		if (data != null) {
+			out.append("<dimensions>");
+			for (int i : data.getDimensions()) {
+				out.append("<dimension>").append(Integer.toString(i)).append("</dimension>");
+			}
+			out.append("</dimensions>");
+			if (newlineAfterEach) {
+				out.append('\n');
+			}
+			out.append("<type>");
+			out.append(data.getType());
+			out.append("</type>");
+			if (newlineAfterEach) {
+				out.append('\n');
+			}
+			data.writeData(out, newlineAfterEach, dataAsString, true, maxValues);
+		}
+
+		int n = node.getNumberOfChildNodes();
+		for (int i = 0; i < n; i++) {
+			INexusTree child = node.getChildNode(i);
+			writeXMLbegin(child, newlineAfterEach, dataAsString, out);
+			writeXMLend(child, newlineAfterEach, out);
+		}
+	}
+
+	static void writeXMLend(INexusTree node, boolean newlineAfterEach, Appendable out) throws IOException {
+		out.append("</");
+		out.append(node.getNxClass().isEmpty() ? "top" : node.getNxClass());
+		out.append('>');
+		if (newlineAfterEach) {
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * Write a line for each node, made of the prefix, the text of each node above it and its own text. The text of a
+	 * node is nodeSep, its class, keyValueSep and its name followed by its dimensions, type and, if wanted, data
+	 * separated by dataItemSep.
+	 *
+	 * @param tree
+	 * @param prefix
+	 * @param keyValueSep
+	 * @param dataItemSep
+	 * @param nodeSep
+	 * @param includeData
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeText(INexusTree tree, String prefix, String keyValueSep, String dataItemSep, String nodeSep,
+			boolean includeData, Appendable out) throws IOException {
+		new TextWriter(prefix, keyValueSep, dataItemSep, nodeSep, includeData, out).write(tree);
+	}
+
+	private final class TextWriter {
+		private final String prefix;
+		private final String keyValueSep;
+		private final String dataItemSep;
+		private final String nodeSep;
+		private final boolean includeData;
+		private final Appendable out;
+
+		/**
+		 * Nodes above the node being written, top first; their text is written again rather than held
+		 */
+		private final Deque<INexusTree> above = new ArrayDeque<>();
+
+		TextWriter(String prefix, String keyValueSep, String dataItemSep, String nodeSep, boolean includeData,
+				Appendable out) {
+			this.prefix = prefix;
+			this.keyValueSep = keyValueSep;
+			this.dataItemSep = dataItemSep;
+			this.nodeSep = nodeSep;
+			this.includeData = includeData;
+			this.out = out;
+		}
+
+		void write(INexusTree node) throws IOException {
+			out.append(prefix);
+			Iterator<INexusTree> it = above.descendingIterator();
+			while (it.hasNext()) {
+				writeNode(it.next());
+			}
+			writeNode(node);
+			out.append('\n');
+
+			above.push(node);
+			int n = node.getNumberOfChildNodes();
+			for (int i = 0; i < n; i++) {
+				write(node.getChildNode(i));
+			}
+			above.pop();
+		}
+
+		private void writeNode(INexusTree node) throws IOException {
+			out.append(nodeSep).append(node.getNxClass()).append(keyValueSep).append(node.getName());
+			NexusGroupData data = node.getData();
+			if (data != null) {
+				out.append(dataItemSep).append("dimensions");
+				for (int i : data.getDimensions()) {
+					out.append(keyValueSep).append(Integer.toString(i));
+				}
+				out.append(dataItemSep).append("type");
+				out.append(keyValueSep).append(data.getType());
+				if (includeData) {
+					out.append(dataItemSep).append("data").append(keyValueSep);
+					data.writeData(out, false, true, false, maxValues);
+				}
+			}
+		}
+	}
+}
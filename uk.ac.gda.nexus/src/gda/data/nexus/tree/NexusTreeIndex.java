@@ -0,0 +1,226 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.dawnsci.nexus.NexusFile;
+
+/**
+ * Index of all the nodes of a tree, made from its top node. Nodes are found by path from any node in the tree, with or
+ * without classes, in one lookup, and by name or class within the subtree of any node without walking it.
+ * <p>
+ * A path is resolved as by INexusTree.getNode, taking the first child with each name (or name and class) in turn, so
+ * only nodes reached that way have a path in the index. The subtree of a node is a range of the nodes numbered in
+ * depth-first order, so nodes within it are found by binary search of the nodes with a given name or class.
+ * <p>
+ * The index is not changed after it is made so is discarded when the tree changes.
+ */
+final class NexusTreeIndex {
+
+	private static final class Entry {
+		final INexusTree node;
+		/**
+		 * Number in depth-first order
+		 */
+		final int number;
+		/**
+		 * Number of the last node in the subtree
+		 */
+		int last;
+		/**
+		 * Paths from the top node, null if the node is not the first reached by its path
+		 */
+		String path;
+		String pathWithClasses;
+
+		Entry(INexusTree node, int number) {
+			this.node = node;
+			this.number = number;
+		}
+	}
+
+	private final Map<INexusTree, Entry> entries = new IdentityHashMap<>();
+	private final Map<String, INexusTree> byPath = new HashMap<>();
+	private final Map<String, INexusTree> byPathWithClasses = new HashMap<>();
+	private final Map<String, List<Entry>> byName = new HashMap<>();
+	private final Map<String, List<Entry>> byClass = new HashMap<>();
+	/**
+	 * Keyed by class of parent and name
+	 */
+	private final Map<String, List<Entry>> byGroupClassAndName = new HashMap<>();
+	private int count;
+
+	/**
+	 * @param top
+	 *            node of the tree
+	 */
+	NexusTreeIndex(INexusTree top) {
+		add(top, null, "", "");
+	}
+
+	private void add(INexusTree node, INexusTree parent, String path, String pathWithClasses) {
+		Entry e = new Entry(node, count);
+		if (entries.putIfAbsent(node, e) != null) {
+			// a node added twice is indexed where first found
+			return;
+		}
+		count++;
+		if (path != null && byPath.putIfAbsent(path, node) == null) {
+			e.path = path;
+		}
+		if (pathWithClasses != null && byPathWithClasses.putIfAbsent(pathWithClasses, node) == null) {
+			e.pathWithClasses = pathWithClasses;
+		}
+		byName.computeIfAbsent(node.getName(), k -> new ArrayList<>()).add(e);
+		byClass.computeIfAbsent(node.getNxClass(), k -> new ArrayList<>()).add(e);
+		if (parent != null) {
+			byGroupClassAndName.computeIfAbsent(groupClassAndName(parent.getNxClass(), node.getName()),
+					k -> new ArrayList<>()).add(e);
+		}
+
+		int n = node.getNumberOfChildNodes();
+		for (int i = 0; i < n; i++) {
+			INexusTree child = node.getChildNode(i);
+			add(child, node, e.path == null ? null : e.path + "/" + child.getName(),
+					e.pathWithClasses == null ? null : e.pathWithClasses + "/" + child.getName() + NexusFile.NXCLASS_SEPARATOR + child.getNxClass());
+		}
+		e.last = count - 1;
+	}
+
+	private static String groupClassAndName(String groupClass, String name) {
+		return groupClass + "/" + name;
+	}
+
+	/**
+	 * @param node
+	 * @return true if paths from the node can be resolved by the index
+	 */
+	boolean hasPath(INexusTree node) {
+		Entry e = entries.get(node);
+		return e != null && e.path != null;
+	}
+
+	/**
+	 * @param node
+	 * @return true if paths with classes from the node can be resolved by the index
+	 */
+	boolean hasPathWithClasses(INexusTree node) {
+		Entry e = entries.get(node);
+		return e != null && e.pathWithClasses != null;
+	}
+
+	/**
+	 * @param node
+	 * @return true if nodes within the subtree of the node can be found by the index
+	 */
+	boolean contains(INexusTree node) {
+		return entries.containsKey(node);
+	}
+
+	/**
+	 * @param from
+	 *            node for which {@link #hasPath} is true
+	 * @param path
+	 *            names separated by /
+	 * @return node or null if not found
+	 */
+	INexusTree getNode(INexusTree from, String path) {
+		return byPath.get(entries.get(from).path + "/" + path);
+	}
+
+	/**
+	 * @param from
+	 *            node for which {@link #hasPathWithClasses} is true
+	 * @param path
+	 *            name:class pairs separated by /
+	 * @return node or null if not found
+	 */
+	INexusTree getNodeWithClasses(INexusTree from, String path) {
+		return byPathWithClasses.get(entries.get(from).pathWithClasses + "/" + path);
+	}
+
+	/**
+	 * @param from
+	 *            node in index
+	 * @param name
+	 * @return first node in depth-first order with the name in the subtree of the node, including the node
+	 */
+	INexusTree findNode(INexusTree from, String name) {
+		List<INexusTree> found = within(byName.get(name), entries.get(from), 1);
+		return found.isEmpty() ? null : found.get(0);
+	}
+
+	/**
+	 * @param from
+	 *            node in index
+	 * @param nxClass
+	 * @return nodes of the class in the subtree of the node, including the node, in depth-first order
+	 */
+	List<INexusTree> findNodesOfClass(INexusTree from, String nxClass) {
+		return within(byClass.get(nxClass), entries.get(from), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param from
+	 *            node in index
+	 * @param groupClass
+	 * @param name
+	 * @return nodes with the name whose parent has the class in the subtree of the node, in depth-first order
+	 */
+	List<INexusTree> findNodes(INexusTree from, String groupClass, String name) {
+		return within(byGroupClassAndName.get(groupClassAndName(groupClass, name)), entries.get(from),
+				Integer.MAX_VALUE);
+	}
+
+	private static List<INexusTree> within(List<Entry> list, Entry scope, int max) {
+		if (list == null) {
+			return Collections.emptyList();
+		}
+		int from = firstFrom(list, scope.number);
+		int to = Math.min(firstFrom(list, scope.last + 1), from + max);
+		List<INexusTree> nodes = new ArrayList<>(Math.max(to - from, 0));
+		for (int i = from; i < to; i++) {
+			nodes.add(list.get(i).node);
+		}
+		return nodes;
+	}
+
+	/**
+	 * @return index of first entry numbered at least number
+	 */
+	private static int firstFrom(List<Entry> list, int number) {
+		int lo = 0;
+		int hi = list.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (list.get(mid).number < number) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+}
@@ -18,28 +18,63 @@
 
 package gda.data.nexus.tree;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Vector;
 
+import org.eclipse.dawnsci.nexus.NexusFile;
+
 import gda.data.nexus.extractor.NexusExtractor;
 import gda.data.nexus.extractor.NexusGroupData;
 
 /**
  * Class to represent a Nexus Group - a child is either a DATASET or an ATTRIBUTE
+ * <p>
+ * A node is only equal to itself; use {@link #structurallyEquals(INexusTree)} to compare the content of trees.
  */
 public class NexusTreeNode implements INexusTree, Serializable {
 
+	private static final NexusTreeExporter exporter = new NexusTreeExporter();
+
 	/**
 	 * The actual data read from the element
 	 */
 	public final NexusGroupData groupData;
 	private List<INexusTree> childNodes = new Vector<>();
 
+	/**
+	 * Number of child nodes above which lookups by name use an index
+	 */
+	static final int INDEX_THRESHOLD = 8;
+
+	/**
+	 * Index of the child nodes, made when first needed and discarded when children are removed or reordered. Guarded
+	 * by the lock of childNodes
+	 */
+	private transient ChildIndex childIndex;
+
+	/**
+	 * Index of the tree of which this is the top node, made when first needed and discarded when the tree changes
+	 */
+	private transient volatile NexusTreeIndex treeIndex;
+	private transient volatile int treeChanges;
+
+	/**
+	 * Paths made when first needed, from the paths of the parent
+	 */
+	private transient String nodePath;
+	private transient String nodePathWithClasses;
+
 	/**
 	 * The name of the element read from the Nexus file
 	 */
@@ -69,7 +104,12 @@ public class NexusTreeNode implements INexusTree, Serializable {
 	 */
 	@Override
 	public void setParentNode(INexusTree parentNode) {
+		if (this.parentNode != parentNode) {
+			clearPaths();
+		}
 		this.parentNode = parentNode;
+		// no longer the top of its tree
+		treeIndex = null;
 	}
 
 	/**
@@ -118,56 +158,31 @@ public class NexusTreeNode implements INexusTree, Serializable {
 	 */
 	@Override
 	public String toXML(boolean newlineAfterEach, boolean dataAsString) {
-		return toXMLbegin(newlineAfterEach, dataAsString).toString()
-				+ toXMLend(newlineAfterEach, dataAsString).toString();
+		return export(new StringBuilder(), out -> exporter.writeXML(this, newlineAfterEach, dataAsString, out)).toString();
 	}
 
 	@Override
 	public StringBuffer toXMLbegin(boolean newlineAfterEach, boolean dataAsString) {
-		StringBuffer msg = new StringBuffer("<");
-		msg.append((parentNode == null) ? "top" : nxClass);
-		msg.append(" @name=" + name);
-
-		msg.append(">");
-		if (newlineAfterEach) {
-			msg.append("\n");
-		}
-
-		if (groupData != null) {
-			msg.append("<dimensions>");
-			for (int i : groupData.getDimensions()) {
-				msg.append("<dimension>" + i + "</dimension>");
-			}
-			msg.append("</dimensions>");
-			if (newlineAfterEach) {
-				msg.append("\n");
-			}
-			msg.append("<type>");
-			msg.append(groupData.getType());
-			msg.append("</type>");
-			if (newlineAfterEach) {
-				msg.append("\n");
-			}
-			msg.append(groupData.dataToTxt(newlineAfterEach, dataAsString, true));
-
-		}
-
-		for (INexusTree ntn : childNodes) {
-			msg.append(ntn.toXMLbegin(newlineAfterEach, dataAsString));
-			msg.append(ntn.toXMLend(newlineAfterEach, dataAsString));
-		}
-		return msg;
+		return export(new StringBuffer(), out -> exporter.writeXMLbegin(this, newlineAfterEach, dataAsString, out));
 	}
 
 	@Override
 	public StringBuffer toXMLend(boolean newlineAfterEach, boolean dataAsString) {
-		StringBuffer msg = new StringBuffer("</");
-		msg.append(nxClass.isEmpty() ? "top" : nxClass);
-		msg.append(">");
-		if (newlineAfterEach) {
-			msg.append("\n");
+		return export(new StringBuffer(), out -> NexusTreeExporter.writeXMLend(this, newlineAfterEach, out));
+	}
+
+	private interface Export {
+		void to(Appendable out) throws IOException;
+	}
+
+	private static <T extends Appendable> T export(T out, Export export) {
+		try {
+			export.to(out);
+		} catch (IOException e) {
+			// not thrown by string builders
+			throw new UncheckedIOException(e);
 		}
-		return msg;
+		return out;
 	}
 
 	@Override
@@ -175,30 +190,110 @@ public class NexusTreeNode implements INexusTree, Serializable {
 		return groupData;
 	}
 
+	/**
+	 * Hook for subclasses that read their child nodes on demand. Called before the child nodes are used
+	 */
+	protected void loadChildNodes() {
+	}
+
+	private List<INexusTree> children() {
+		loadChildNodes();
+		return childNodes;
+	}
+
 	@Override
 	public int getNumberOfChildNodes() {
-		return childNodes.size();
+		return children().size();
 	}
 
 	@Override
 	public void addChildNode(INexusTree e) {
-		childNodes.add(e);
+		List<INexusTree> children = children();
+		synchronized (children) {
+			children.add(e);
+			if (childIndex != null) {
+				childIndex.add(e);
+			}
+		}
 		e.setParentNode(this);
+		treeChanged();
 	}
 
 	@Override
 	public void removeChildNode(INexusTree e) {
-		childNodes.remove(e);
+		List<INexusTree> children = children();
+		synchronized (children) {
+			children.remove(e);
+			childIndex = null;
+		}
 		e.setParentNode(null);
+		treeChanged();
+	}
+
+	/**
+	 * Add child nodes in one step, in the time taken to add each without shifting or searching the others
+	 *
+	 * @param nodes
+	 */
+	public void addChildNodes(Collection<? extends INexusTree> nodes) {
+		List<INexusTree> children = children();
+		synchronized (children) {
+			children.addAll(nodes);
+			if (childIndex != null) {
+				for (INexusTree e : nodes) {
+					childIndex.add(e);
+				}
+			}
+		}
+		for (INexusTree e : nodes) {
+			e.setParentNode(this);
+		}
+		treeChanged();
+	}
+
+	/**
+	 * Remove all child nodes in one step
+	 *
+	 * @return the nodes removed, in order
+	 */
+	public List<INexusTree> removeChildNodes() {
+		List<INexusTree> children = children();
+		List<INexusTree> removed;
+		synchronized (children) {
+			removed = new ArrayList<>(children);
+			children.clear();
+			childIndex = null;
+		}
+		for (INexusTree e : removed) {
+			e.setParentNode(null);
+		}
+		treeChanged();
+		return removed;
+	}
+
+	/**
+	 * Must hold lock of childNodes
+	 *
+	 * @return index of child nodes or null if there are too few to need one
+	 */
+	private ChildIndex index() {
+		if (childIndex == null && childNodes.size() > INDEX_THRESHOLD) {
+			ChildIndex index = new ChildIndex();
+			for (INexusTree c : childNodes) {
+				index.add(c);
+			}
+			childIndex = index;
+		}
+		return childIndex;
 	}
 
 	@Override
 	public INexusTree getChildNode(int index) {
-		return childNodes.get(index);
+		return children().get(index);
 	}
 
 	public int getChildCount() {
-		return childNodes.size();
+		return children().size();
 	}
 
 	@Override
@@ -208,9 +303,14 @@ public class NexusTreeNode implements INexusTree, Serializable {
 
 	@Override
 	public void setPrioritised(INexusTree child) {
-		if (this.childNodes.contains(child)) {
-			childNodes.sort(priorityComparator(child));
+		List<INexusTree> children = children();
+		synchronized (children) {
+			if (children.contains(child)) {
+				children.sort(priorityComparator(child));
+				childIndex = null;
+			}
 		}
+		treeChanged();
 	}
 
 	protected Comparator<INexusTree> priorityComparator(INexusTree priority) {
@@ -224,30 +324,89 @@ public class NexusTreeNode implements INexusTree, Serializable {
 
 	@Override
 	public String toText(String prefix, String keyValueSep, String dataItemSep, String nodeSep, boolean includeData) {
-		StringBuffer msg = new StringBuffer(prefix + nodeSep + nxClass + keyValueSep + name);
-		if (groupData != null) {
-			msg.append(dataItemSep + "dimensions");
-			for (int i : groupData.getDimensions()) {
-				msg.append(keyValueSep + i);
+		return export(new StringBuilder(),
+				out -> exporter.writeText(this, prefix, keyValueSep, dataItemSep, nodeSep, includeData, out)).toString();
+	}
+
+	@Override
+	public Iterator<INexusTree> iterator() {
+		Iterator<INexusTree> it = children().iterator();
+		return new Iterator<INexusTree>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public INexusTree next() {
+				return it.next();
+			}
+
+			@Override
+			public void remove() {
+				synchronized (childNodes) {
+					it.remove();
+					childIndex = null;
+				}
+				treeChanged();
 			}
-			msg.append(dataItemSep + "type");
-			msg.append(keyValueSep + groupData.getType());
-			if (includeData) {
-				msg.append(dataItemSep + "data" + keyValueSep + groupData.dataToTxt(false, true, false));
+		};
+	}
+
+	/**
+	 * @return index of the tree containing this node, made if there is none, or null if the tree is not indexed
+	 */
+	private NexusTreeIndex treeIndex() {
+		return treeIndex(true);
+	}
+
+	/**
+	 * @param make
+	 *            if false only an index already made is returned
+	 * @return index of the tree containing this node or null
+	 */
+	private NexusTreeIndex treeIndex(boolean make) {
+		INexusTree top = this;
+		while (top.getParentNode() != null) {
+			top = top.getParentNode();
+		}
+		if (!(top instanceof NexusTreeNode)) {
+			return null;
+		}
+		NexusTreeNode t = (NexusTreeNode) top;
+		NexusTreeIndex index = t.treeIndex;
+		if (index == null && make && t.isTreeIndexed()) {
+			int changes = t.treeChanges;
+			index = new NexusTreeIndex(t);
+			if (changes == t.treeChanges) {
+				t.treeIndex = index;
 			}
 		}
+		return index;
+	}
 
-		prefix = msg.toString();
-		msg.append("\n");
-		for (INexusTree ntn : childNodes) {
-				msg.append(ntn.toText(prefix, keyValueSep, dataItemSep, nodeSep, includeData));
+	/**
+	 * Discard the index of the tree containing this node
+	 */
+	private void treeChanged() {
+		INexusTree top = this;
+		while (top.getParentNode() != null) {
+			top = top.getParentNode();
+		}
+		if (top instanceof NexusTreeNode) {
+			NexusTreeNode t = (NexusTreeNode) top;
+			t.treeChanges++;
+			t.treeIndex = null;
 		}
-		return msg.toString();
 	}
 
-	@Override
-	public Iterator<INexusTree> iterator() {
-		return childNodes.iterator();
+	/**
+	 * Override to stop the tree being indexed, e.g. where indexing would read child nodes not yet needed
+	 *
+	 * @return true if the tree of which this is the top node can be indexed for finding nodes
+	 */
+	protected boolean isTreeIndexed() {
+		return true;
 	}
 
 	/**
@@ -257,6 +416,10 @@ public class NexusTreeNode implements INexusTree, Serializable {
 	 * @return node with given name
 	 */
 	public NexusTreeNode findNode(String nodeName) {
+		NexusTreeIndex index = treeIndex();
+		if (index != null && index.contains(this)) {
+			return (NexusTreeNode) index.findNode(this, nodeName);
+		}
 		NexusTreeNode node = this;
 		if (!node.getName().equals(nodeName)) {
 			for (INexusTree c : node) {
@@ -274,46 +437,142 @@ public class NexusTreeNode implements INexusTree, Serializable {
 	 */
 	@Override
 	public String getNodePath() {
-		// build reference to current node
-		String nodePath = getName();
-		INexusTree pnode = parentNode;
-		while (pnode != null) {
-			nodePath = pnode.getName() + "/" + nodePath;
-			pnode = pnode.getParentNode();
+		String p = nodePath;
+		if (p == null) {
+			p = (parentNode == null ? "" : parentNode.getNodePath()) + "/" + getName();
+			nodePath = p;
 		}
-
-		return "/" + nodePath;
+		return p;
 	}
 
 	@Override
 	public String getNodePathWithClasses(){
-		// build reference to current node
-		INexusTree node=this;
-		StringBuffer totalPath = new StringBuffer("");
-		while (node != null) {
-			StringBuffer nodePath = new StringBuffer(node.getName());
-			nodePath.append("/");
-			nodePath.append(node.getNxClass());
-			nodePath.append("/");
-			totalPath.insert(0, nodePath);
-			node = node.getParentNode();
+		String p = nodePathWithClasses;
+		if (p == null) {
+			p = (parentNode == null ? "" : parentNode.getNodePathWithClasses()) + getName() + "/" + getNxClass() + "/";
+			nodePathWithClasses = p;
+		}
+		return p;
+	}
+
+	/**
+	 * Discard the paths of this node and of the nodes below it
+	 */
+	private void clearPaths() {
+		if (nodePath == null && nodePathWithClasses == null) {
+			// paths of nodes below are only made from the paths of this node
+			return;
+		}
+		nodePath = null;
+		nodePathWithClasses = null;
+		List<INexusTree> children = childNodes; // not loaded if not already
+		synchronized (children) {
+			for (INexusTree c : children) {
+				if (c instanceof NexusTreeNode) {
+					((NexusTreeNode) c).clearPaths();
+				}
+			}
 		}
-		return totalPath.toString();
 	}
 
 	/**
+	 * Paths are resolved through the index of the tree if there is one, otherwise through the index of the children
+	 * of each node, in time proportional to the depth of the path. An index of the tree is not made for them, as any
+	 * change to the tree discards it and building a tree often alternates getNode and addChildNode.
+	 *
 	 * @param path
 	 * @return node with given path
 	 */
 	@Override
 	public INexusTree getNode(String path){
+		NexusTreeIndex index = treeIndex(false);
+		if (index != null && index.hasPath(this)) {
+			return index.getNode(this, path);
+		}
 		String [] nodeIds = path.split("/",2);
-		for(INexusTree child : this){
-			if( child.getName().equals(nodeIds[0])){
-				return ( nodeIds.length==1) ? child :child.getNode(nodeIds[1]);
+		INexusTree child = getChildNode(nodeIds[0]);
+		if (child == null) {
+			return null;
+		}
+		return (nodeIds.length == 1) ? child : child.getNode(nodeIds[1]);
+	}
+
+	/**
+	 * @param path
+	 *            names and classes of nodes separated by /, each as name:class e.g.
+	 *            entry1:NXentry/instrument:NXinstrument
+	 * @return node with given path or null if not found
+	 * @see #getNode(String)
+	 */
+	public INexusTree getNodeWithClasses(String path) {
+		NexusTreeIndex index = treeIndex(false);
+		if (index != null && index.hasPathWithClasses(this)) {
+			return index.getNodeWithClasses(this, path);
+		}
+		INexusTree node = this;
+		for (String id : path.split("/")) {
+			int i = id.lastIndexOf(NexusFile.NXCLASS_SEPARATOR);
+			if (i < 0) {
+				return null;
+			}
+			node = node.getChildNode(id.substring(0, i), id.substring(i + 1));
+			if (node == null) {
+				return null;
 			}
 		}
-		return null;
+		return node;
+	}
+
+	/**
+	 * @param nxClass
+	 * @return nodes of given class, depth-first from and including this node
+	 */
+	public List<INexusTree> findNodesOfClass(String nxClass) {
+		NexusTreeIndex index = treeIndex();
+		if (index != null && index.contains(this)) {
+			return index.findNodesOfClass(this, nxClass);
+		}
+		List<INexusTree> found = new ArrayList<>();
+		collect(this, null, nxClass, found);
+		return found;
+	}
+
+	/**
+	 * Find the nodes with a name in all the groups of a class e.g. the data of every detector is found with
+	 * findNodes("NXdetector", "data")
+	 *
+	 * @param groupClass
+	 *            class of parent
+	 * @param name
+	 * @return nodes depth-first below this node
+	 */
+	public List<INexusTree> findNodes(String groupClass, String name) {
+		NexusTreeIndex index = treeIndex();
+		if (index != null && index.contains(this)) {
+			return index.findNodes(this, groupClass, name);
+		}
+		List<INexusTree> found = new ArrayList<>();
+		collect(this, groupClass, name, found);
+		return found;
+	}
+
+	/**
+	 * Walk the tree depth-first collecting nodes of a class, or if groupClass is given nodes with a name in groups of
+	 * that class
+	 */
+	private static void collect(INexusTree node, String groupClass, String value, List<INexusTree> found) {
+		if (groupClass == null && value.equals(node.getNxClass())) {
+			found.add(node);
+		}
+		int n = node.getNumberOfChildNodes();
+		boolean inGroup = groupClass != null && groupClass.equals(node.getNxClass());
+		for (int i = 0; i < n; i++) {
+			INexusTree child = node.getChildNode(i);
+			if (inGroup && value.equals(child.getName())) {
+				found.add(child);
+			}
+			collect(child, groupClass, value, found);
+		}
 	}
 
 	/**
@@ -323,15 +582,8 @@ public class NexusTreeNode implements INexusTree, Serializable {
 	 */
 	@Override
 	public Serializable getAttribute(String name) {
-		for (int j = 0; j < getNumberOfChildNodes(); j++) {
-			NexusTreeNode c = (NexusTreeNode) getChildNode(j);
-			if (c.getNxClass().equals(NexusExtractor.AttrClassName)) {
-				if (c.getName().equals(name)) {
-					return c.getData().getFirstValue();
-				}
-			}
-		}
-		return null;
+		INexusTree c = getChildNode(name, NexusExtractor.AttrClassName);
+		return c == null ? null : c.getData().getFirstValue();
 	}
 
 	/**
@@ -340,9 +592,14 @@ public class NexusTreeNode implements INexusTree, Serializable {
 	 */
 	@Override
 	public HashMap<String,Serializable> getAttributes() {
+		List<INexusTree> nodes;
+		List<INexusTree> children = children();
+		synchronized (children) {
+			ChildIndex index = index();
+			nodes = new ArrayList<>(index == null ? children : index.attributes);
+		}
 		HashMap<String,Serializable> attributes = null;
-		for (int j = 0; j < getNumberOfChildNodes(); j++) {
-			NexusTreeNode c = (NexusTreeNode) getChildNode(j);
+		for (INexusTree c : nodes) {
 			if (c.getNxClass().equals(NexusExtractor.AttrClassName)) {
 				if (attributes == null)
 					attributes = new HashMap<>();
@@ -355,22 +612,95 @@ public class NexusTreeNode implements INexusTree, Serializable {
 
 	@Override
 	public void sort(Comparator<INexusTree> comparator) {
-		Collections.sort(childNodes, comparator);
-		for(INexusTree tree: childNodes){
+		List<INexusTree> children = children();
+		synchronized (children) {
+			Collections.sort(children, comparator);
+			childIndex = null;
+		}
+		treeChanged();
+		for(INexusTree tree: children){
 			tree.sort(comparator);
 		}
 	}
 
 	@Override
 	public INexusTree getChildNode(String name, String className) {
-		for(INexusTree tree: childNodes){
-			if( tree.getName().equals(name) && tree.getNxClass().equals(className)){
-				return tree;
+		List<INexusTree> children = children();
+		synchronized (children) {
+			ChildIndex index = index();
+			if (index != null) {
+				return index.byNameAndClass.get(new NameAndClass(name, className));
+			}
+			for (INexusTree tree : children) {
+				if (tree.getName().equals(name) && tree.getNxClass().equals(className)) {
+					return tree;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param name
+	 * @return first child node with given name or null if not found
+	 */
+	public INexusTree getChildNode(String name) {
+		List<INexusTree> children = children();
+		synchronized (children) {
+			ChildIndex index = index();
+			if (index != null) {
+				return index.byName.get(name);
+			}
+			for (INexusTree tree : children) {
+				if (tree.getName().equals(name)) {
+					return tree;
+				}
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Child nodes by name and by name and class, holding the first in order of each, and the attributes
+	 */
+	private static final class ChildIndex {
+		final Map<NameAndClass, INexusTree> byNameAndClass = new HashMap<>();
+		final Map<String, INexusTree> byName = new HashMap<>();
+		final List<INexusTree> attributes = new ArrayList<>();
+
+		void add(INexusTree child) {
+			byNameAndClass.putIfAbsent(new NameAndClass(child.getName(), child.getNxClass()), child);
+			byName.putIfAbsent(child.getName(), child);
+			if (NexusExtractor.AttrClassName.equals(child.getNxClass())) {
+				attributes.add(child);
+			}
+		}
+	}
+
+	private static final class NameAndClass {
+		final String name;
+		final String nxClass;
+
+		NameAndClass(String name, String nxClass) {
+			this.name = name;
+			this.nxClass = nxClass;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Objects.hashCode(name) + Objects.hashCode(nxClass);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof NameAndClass)) {
+				return false;
+			}
+			NameAndClass other = (NameAndClass) obj;
+			return Objects.equals(name, other.name) && Objects.equals(nxClass, other.nxClass);
+		}
+	}
+
 	boolean isPointDependent=false;
 
 	public void setIsPointDependent(boolean val){
@@ -382,56 +712,57 @@ public class NexusTreeNode implements INexusTree, Serializable {
 		return isPointDependent;
 	}
 
-	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((childNodes == null) ? 0 : childNodes.hashCode());
-		result = prime * result + ((groupData == null) ? 0 : groupData.hashCode());
-		result = prime * result + (isPointDependent ? 1231 : 1237);
-		result = prime * result + ((name == null) ? 0 : name.hashCode());
-		result = prime * result + ((nxClass == null) ? 0 : nxClass.hashCode());
-		result = prime * result + ((parentNode == null) ? 0 : parentNode.hashCode());
-		return result;
+	/**
+	 * Compare the content of this node and the nodes below it with another tree: names, classes, data, whether point
+	 * dependent and child nodes in order. Parents are not compared. This takes time proportional to the size of the
+	 * subtree; equals only compares identity
+	 *
+	 * @param other
+	 * @return true if the trees have the same content
+	 */
+	public boolean structurallyEquals(INexusTree other) {
+		return structurallyEqual(this, other);
 	}
 
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
+	private static boolean structurallyEqual(INexusTree a, INexusTree b) {
+		if (a == b) {
 			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		NexusTreeNode other = (NexusTreeNode) obj;
-		if (childNodes == null) {
-			if (other.childNodes != null)
-				return false;
-		} else if (!childNodes.equals(other.childNodes))
-			return false;
-		if (groupData == null) {
-			if (other.groupData != null)
-				return false;
-		} else if (!groupData.equals(other.groupData))
-			return false;
-		if (isPointDependent != other.isPointDependent)
-			return false;
-		if (name == null) {
-			if (other.name != null)
-				return false;
-		} else if (!name.equals(other.name))
+		}
+		if (b == null || a.isPointDependent() != b.isPointDependent() || !Objects.equals(a.getName(), b.getName())
+				|| !Objects.equals(a.getNxClass(), b.getNxClass()) || !Objects.equals(a.getData(), b.getData())) {
 			return false;
-		if (nxClass == null) {
-			if (other.nxClass != null)
-				return false;
-		} else if (!nxClass.equals(other.nxClass))
+		}
+		int n = a.getNumberOfChildNodes();
+		if (n != b.getNumberOfChildNodes()) {
 			return false;
-		if (parentNode == null) {
-			if (other.parentNode != null)
+		}
+		for (int i = 0; i < n; i++) {
+			if (!structurallyEqual(a.getChildNode(i), b.getChildNode(i))) {
 				return false;
-		} else if (!parentNode.equals(other.parentNode))
-			return false;
+			}
+		}
 		return true;
 	}
 
+	/**
+	 * @return hash code of the content compared by {@link #structurallyEquals(INexusTree)}
+	 */
+	public int structuralHashCode() {
+		return structuralHashCode(this);
+	}
+
+	private static int structuralHashCode(INexusTree node) {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Objects.hashCode(node.getData());
+		result = prime * result + (node.isPointDependent() ? 1231 : 1237);
+		result = prime * result + Objects.hashCode(node.getName());
+		result = prime * result + Objects.hashCode(node.getNxClass());
+		int n = node.getNumberOfChildNodes();
+		for (int i = 0; i < n; i++) {
+			result = prime * result + structuralHashCode(node.getChildNode(i));
+		}
+		return result;
+	}
+
 }
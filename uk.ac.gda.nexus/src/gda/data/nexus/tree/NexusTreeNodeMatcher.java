@@ -0,0 +1,154 @@
+/*-
+ * Copyright © 2026 Diamond Light Source Ltd.
+ *
+ * This file is part of GDA.
+ *
+ * GDA is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License version 3 as published by the Free
+ * Software Foundation.
+ *
+ * GDA is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with GDA. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package gda.data.nexus.tree;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import gda.data.nexus.extractor.INexusChildFilter;
+
+/**
+ * A NexusTreeNodeSelection compiled into states so that the selection for a node is found from the state of its
+ * parent without walking the path from the top of the tree. Names and classes that contain no regular expression
+ * characters are compared as strings. A state is also a filter for the children of its node.
+ * <p>
+ * The selection is copied when compiled so later changes to it are not seen.
+ */
+final class NexusTreeNodeMatcher {
+
+	/**
+	 * State of the top of the tree before its top node is matched
+	 */
+	final State start;
+
+	NexusTreeNodeMatcher(NexusTreeNodeSelection selectionTree) {
+		start = new State(NexusTreeNodeSelection.SKIP, new Candidate[] { new Candidate(selectionTree) });
+	}
+
+	/**
+	 * The selection for a node and the candidates for matching its children
+	 */
+	static final class State implements INexusChildFilter {
+		private static final State SKIP = new State(NexusTreeNodeSelection.SKIP, new Candidate[0]);
+
+		private final NexusTreeNodeSelection selection;
+		private final Candidate[] candidates;
+
+		private State(NexusTreeNodeSelection selection, Candidate[] candidates) {
+			this.selection = selection;
+			this.candidates = candidates;
+		}
+
+		/**
+		 * @return selection for the node
+		 */
+		NexusTreeNodeSelection getSelection() {
+			return selection;
+		}
+
+		/**
+		 * @param name
+		 * @param nxClass
+		 * @return state of a child node
+		 */
+		State next(String name, String nxClass) {
+			for (Candidate c : candidates) {
+				if (c.nxClass.matches(nxClass) && c.name.matches(name)) {
+					return c.state;
+				}
+			}
+			// a node selected with everything below it passes that on to children that are not matched
+			return selection.isGetThisAndBelow() ? this : SKIP;
+		}
+
+		@Override
+		public boolean mayMatchName(String name) {
+			if (selection.isGetThisAndBelow()) {
+				return true;
+			}
+			for (Candidate c : candidates) {
+				if (!c.state.selection.isSkip() && c.name.matches(name)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean mayMatch(String name, String nxClass) {
+			return !next(name, nxClass).selection.isSkip();
+		}
+	}
+
+	private static final class Candidate {
+		final Test name;
+		final Test nxClass;
+		final State state;
+
+		Candidate(NexusTreeNodeSelection selection) {
+			name = Test.of(selection.getName());
+			nxClass = Test.of(selection.getNxClass());
+			List<NexusTreeNodeSelection> children = selection.getChildNodes();
+			Candidate[] candidates = new Candidate[children.size()];
+			for (int i = 0; i < candidates.length; i++) {
+				candidates[i] = new Candidate(children.get(i));
+			}
+			// the names and classes are compiled above and the rest copied, so later changes to selection are not seen
+			state = new State(new NexusTreeNodeSelection(selection.getName(), selection.getNxClass(),
+					selection.getWanted(), selection.getDataType()), candidates);
+		}
+	}
+
+	/**
+	 * Test of a name or class as done by NexusTreeNodeSelection
+	 */
+	private abstract static class Test {
+		private static final Pattern REGEX_CHARACTERS = Pattern.compile("[\\\\.\\[\\]{}()<>*+\\-=!?^$|]");
+
+		private static final Test ANY = new Test() {
+			@Override
+			boolean matches(String value) {
+				return true;
+			}
+		};
+
+		static Test of(String expression) {
+			if (expression.isEmpty()) {
+				return ANY;
+			}
+			if (!REGEX_CHARACTERS.matcher(expression).find()) {
+				return new Test() {
+					@Override
+					boolean matches(String value) {
+						return expression.equals(value);
+					}
+				};
+			}
+			Pattern pattern = Pattern.compile(expression);
+			return new Test() {
+				@Override
+				boolean matches(String value) {
+					return pattern.matcher(value).matches();
+				}
+			};
+		}
+
+		abstract boolean matches(String value);
+	}
+}
@@ -18,6 +18,9 @@
 
 package gda.data.nexus.tree;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Class to splice NexusTrees
  */
@@ -35,12 +38,59 @@ public class NexusTreeSplicer {
 		tree2.setParentNode(tree1);
 	}
 	/**
+	 * Move all the child nodes of tree2 to the end of tree1
+	 *
 	 * @param tree1
 	 * @param tree2
 	 */
 	public void MergeTwo(INexusTree tree1, INexusTree tree2){
-		while( tree2.getNumberOfChildNodes() > 0){
-			Splice(tree1, tree2.getChildNode(0));
+		Merge(tree1, tree2, false);
+	}
+
+	/**
+	 * Move all the child nodes of tree2 to tree1. Where mergeGroups is true, a group of tree2 with the same name and
+	 * class as a group of tree1 is merged into it in the same way rather than added alongside it. Other nodes are added
+	 * to the end of tree1 in order.
+	 * <p>
+	 * The time taken is in proportion to the number of nodes moved or merged, where the trees are NexusTreeNodes.
+	 *
+	 * @param tree1
+	 * @param tree2
+	 * @param mergeGroups
+	 */
+	public void Merge(INexusTree tree1, INexusTree tree2, boolean mergeGroups){
+		List<INexusTree> children = removeAll(tree2);
+		List<INexusTree> added = new ArrayList<>(children.size());
+		for (INexusTree child : children) {
+			INexusTree group = mergeGroups && child.getData() == null
+					? tree1.getChildNode(child.getName(), child.getNxClass()) : null;
+			if (group != null && group.getData() == null) {
+				Merge(group, child, true);
+			} else {
+				added.add(child);
+			}
+		}
+		if (tree1 instanceof NexusTreeNode) {
+			((NexusTreeNode) tree1).addChildNodes(added);
+		} else {
+			for (INexusTree child : added) {
+				tree1.addChildNode(child);
+				child.setParentNode(tree1);
+			}
+		}
+	}
+
+	private static List<INexusTree> removeAll(INexusTree tree) {
+		if (tree instanceof NexusTreeNode) {
+			return ((NexusTreeNode) tree).removeChildNodes();
+		}
+		List<INexusTree> children = new ArrayList<>(tree.getNumberOfChildNodes());
+		for (INexusTree child : tree) {
+			children.add(child);
+		}
+		for (INexusTree child : children) {
+			tree.removeChildNode(child);
 		}
+		return children;
 	}
 }